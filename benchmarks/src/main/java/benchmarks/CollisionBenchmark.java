@@ -0,0 +1,57 @@
+package benchmarks;
+
+import entities.MainCharacterTypes.Warrior;
+import maps.DungeonGenerator;
+import org.openjdk.jmh.annotations.*;
+import world.World;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@OperationsPerInvocation(CollisionBenchmark.SAMPLES)
+public class CollisionBenchmark {
+    static final int SAMPLES = 1024;
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    private World world;
+    private final float[] xs = new float[SAMPLES];
+    private final float[] ys = new float[SAMPLES];
+
+    @Setup
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate(mapSize), 0);
+        Random random = new Random(42);
+        float maxX = world.getWidth() * DungeonGenerator.TILE_SIZE;
+        float maxY = world.getHeight() * DungeonGenerator.TILE_SIZE;
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = random.nextFloat() * maxX;
+            ys[i] = random.nextFloat() * maxY;
+        }
+    }
+
+    @Benchmark
+    public int canMoveTo() {
+        int free = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (world.canMoveTo(xs[i], ys[i])) free++;
+        }
+        return free;
+    }
+
+    @Benchmark
+    public int isTileEmpty() {
+        int free = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (world.isTileEmpty(xs[i], ys[i])) free++;
+        }
+        return free;
+    }
+}
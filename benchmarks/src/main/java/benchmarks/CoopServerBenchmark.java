@@ -0,0 +1,95 @@
+package benchmarks;
+
+import net.CoopClient;
+import net.CoopServer;
+import org.openjdk.jmh.annotations.*;
+import world.PlayerInput;
+import world.World;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full co-op tick over loopback: four clients send their input, the
+ * server reads it, steps the level and sends each client its snapshot,
+ * and the clients read them. The score is server ticks per second; the
+ * bytes each snapshot took are printed after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CoopServerBenchmark {
+    private static final String[] CLASSES = {"Warrior", "Mage", "Archer", "Warrior"};
+
+    @Param({"100", "1000", "5000"})
+    public int enemyCount;
+
+    private CoopServer server;
+    private final CoopClient[] clients = new CoopClient[CLASSES.length];
+    private final PlayerInput[] inputs = new PlayerInput[CLASSES.length];
+    private final Random random = new Random(MapSize.SEED);
+    private long bytesAtStart;
+    private long snapshotsAtStart;
+    private long ticks;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new CoopServer(0, MapSize.SEED, enemyCount);
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getPort());
+        for (int c = 0; c < clients.length; c++) {
+            clients[c] = new CoopClient(address);
+            inputs[c] = new PlayerInput();
+            while (!clients[c].isJoined()) {
+                clients[c].join(CLASSES[c]);
+                server.tick();
+                clients[c].poll();
+            }
+        }
+        World world = server.getWorld();
+        for (int p = 0; p < world.getPlayerCount(); p++) {
+            world.getPlayer(p).health = Integer.MAX_VALUE;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        bytesAtStart = server.getBytesSent();
+        snapshotsAtStart = server.getSnapshotsSent();
+        ticks = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long snapshots = server.getSnapshotsSent() - snapshotsAtStart;
+        long bytes = server.getBytesSent() - bytesAtStart;
+        if (ticks == 0 || snapshots == 0) return;
+        System.out.printf("%n%.1f bytes/snapshot, %.1f bytes/tick for %d clients%n",
+            (double) bytes / snapshots, (double) bytes / ticks, clients.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (CoopClient client : clients) client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int tick() throws IOException {
+        for (int c = 0; c < clients.length; c++) {
+            // Each player wanders, turning now and then, and swings every so often.
+            if (random.nextInt(20) == 0) inputs[c].setBits(1 << random.nextInt(4));
+            inputs[c].attack = random.nextInt(10) == 0;
+            clients[c].sendInput(inputs[c]);
+        }
+        server.tick();
+        ticks++;
+        int received = 0;
+        for (CoopClient client : clients) received += client.poll();
+        return received;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import maps.DungeonBatch;
+import maps.DungeonGenerator;
+import maps.TileMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DungeonGenerationBenchmark {
+
+    @Param({"100x60", "300x180", "1000x600", "2000x2000"})
+    public String mapSize;
+
+    @Param({"CLASSIC", "ROOM_GRAPH"})
+    public DungeonGenerator.Layout layout;
+
+    @Param({"16"})
+    public int batchSize;
+
+    private int width;
+    private int height;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        width = MapSize.width(mapSize);
+        height = MapSize.height(mapSize);
+    }
+
+    @Benchmark
+    public TileMap generate() {
+        return new DungeonGenerator(width, height, seed++, layout).getMap();
+    }
+
+    // A whole level set on the common pool; compare against batchSize * generate.
+    @Benchmark
+    public DungeonGenerator[] generateBatch() {
+        return DungeonBatch.generate(ForkJoinPool.commonPool(), seed++, batchSize, width, height, layout);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import entities.EnemyStore;
+import entities.EnemySystem;
+import entities.EnemyTargets;
+import entities.MainCharacterTypes.Warrior;
+import entities.Player;
+import maps.TileSource;
+import org.openjdk.jmh.annotations.*;
+import world.World;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EnemyUpdateBenchmark {
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    @Param({"10", "1000", "10000"})
+    public int enemyCount;
+
+    /** 1 runs the serial update; anything else uses a pool of that many workers. */
+    @Param({"1", "4"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private World world;
+    private EnemyStore enemies;
+    private TileSource map;
+    private final EnemyTargets targets = new EnemyTargets();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate(mapSize), enemyCount);
+        enemies = world.getEnemies();
+        map = world.getMap();
+        Player player = world.getPlayer();
+        targets.clear();
+        targets.add(player.x, player.y, world.getFlowField(), world.getFieldOfView());
+        if (threads > 1 && pool == null) pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    @Benchmark
+    public int updateAll() {
+        Player player = world.getPlayer();
+        EnemySystem.updateParallel(pool, enemies, World.TICK, targets, map);
+        int attacks = 0;
+        for (int i = 0, n = enemies.size(); i < n; i++) {
+            if (EnemySystem.canAttack(enemies, i, player.x, player.y)) attacks++;
+        }
+        return attacks;
+    }
+}
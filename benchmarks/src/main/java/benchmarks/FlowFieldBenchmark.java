@@ -0,0 +1,43 @@
+package benchmarks;
+
+import entities.MainCharacterTypes.Warrior;
+import entities.Player;
+import maps.DungeonGenerator;
+import maps.FlowField;
+import org.openjdk.jmh.annotations.*;
+import world.World;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FlowFieldBenchmark {
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    private World world;
+    private FlowField flow;
+    private int tileX, tileY;
+    private int step;
+
+    @Setup
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate(mapSize), 0);
+        flow = new FlowField();
+        Player player = world.getPlayer();
+        tileX = (int) (player.centerX() / DungeonGenerator.TILE_SIZE);
+        tileY = (int) (player.centerY() / DungeonGenerator.TILE_SIZE);
+    }
+
+    // Alternates the target so every call is a full rebuild.
+    @Benchmark
+    public boolean rebuild() {
+        step++;
+        return flow.update(tileX, tileY + (step & 1), world.getMap());
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import entities.MainCharacterTypes.Warrior;
+import maps.DungeonGenerator;
+import maps.FieldOfView;
+import maps.TileSource;
+import org.openjdk.jmh.annotations.*;
+import world.FogOfWar;
+import world.World;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FogBenchmark {
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    private World world;
+    private FogOfWar fog;
+    private FieldOfView fov;
+    private TileSource map;
+    private int tileX, tileY;
+    private int step;
+
+    @Setup
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate(mapSize), 0);
+        fog = new FogOfWar(MapSize.width(mapSize), MapSize.height(mapSize));
+        fov = new FieldOfView();
+        map = world.getMap();
+        tileX = (int) (world.getPlayer().centerX() / DungeonGenerator.TILE_SIZE);
+        tileY = (int) (world.getPlayer().centerY() / DungeonGenerator.TILE_SIZE);
+    }
+
+    // Player standing still: the common case per tick.
+    @Benchmark
+    public boolean updateExploredUnchanged() {
+        world.updateExplored();
+        return world.isPortalDiscovered();
+    }
+
+    // Player stepping onto a new tile every call over already explored ground:
+    // a full shadowcast plus the fog reveal.
+    @Benchmark
+    public int revealOnTileChange() {
+        step++;
+        fov.update(tileX + (step & 1), tileY, map);
+        fog.reveal(fov);
+        int revealed = fog.getRevealedCount();
+        fog.clearRevealed();
+        return revealed;
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import entities.MainCharacterTypes.Warrior;
+import entities.Player;
+import org.openjdk.jmh.annotations.*;
+import world.World;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HitTestBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int enemyCount;
+
+    private World world;
+    private float boxX, boxY;
+
+    @Setup
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate("100x60"), enemyCount);
+        Player player = world.getPlayer();
+        boxX = player.centerX();
+        boxY = player.centerY() - 4f;
+    }
+
+    // Zero damage keeps the enemy set unchanged between invocations.
+    @Benchmark
+    public int hitTest() {
+        world.hitEnemiesInBox(boxX, boxY, 100f, 8f, 0);
+        return world.getEnemies().size();
+    }
+}
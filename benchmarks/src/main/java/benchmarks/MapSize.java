@@ -0,0 +1,22 @@
+package benchmarks;
+
+import maps.DungeonGenerator;
+
+final class MapSize {
+    // Fixed so that runs on different machines and commits measure the same levels.
+    static final long SEED = 20240601L;
+
+    private MapSize() {}
+
+    static int width(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    static int height(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    static DungeonGenerator generate(String size) {
+        return new DungeonGenerator(width(size), height(size), SEED);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import com.badlogic.gdx.utils.IntArray;
+import entities.EnemyGrid;
+import entities.EnemyStore;
+import entities.MainCharacterTypes.Archer;
+import entities.ProjectileStore;
+import entities.ProjectileSystem;
+import org.openjdk.jmh.annotations.*;
+import world.World;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProjectileBenchmark {
+
+    @Param({"100", "1000"})
+    public int projectileCount;
+
+    @Param({"10", "1000"})
+    public int enemyCount;
+
+    private World world;
+    private ProjectileStore projectiles;
+    private EnemyStore enemies;
+    private EnemyGrid grid;
+    private final IntArray candidates = new IntArray();
+    private final IntArray hitIds = new IntArray();
+    private final IntArray hitDamage = new IntArray();
+    private final Random random = new Random(MapSize.SEED);
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        world = new World(new Archer(), MapSize.generate("1000x600"), enemyCount);
+        projectiles = world.getProjectiles();
+        enemies = world.getEnemies();
+        grid = world.getEnemyGrid();
+    }
+
+    // One tick of projectile movement, wall sweeps and hit tests, with the
+    // projectile count topped up from the player's position first. Hits are
+    // collected but not applied, so the enemies stay put.
+    @Benchmark
+    public int update() {
+        float cx = world.getPlayer().centerX();
+        float cy = world.getPlayer().centerY();
+        while (projectiles.size() < projectileCount) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            projectiles.create(cx, cy, (float) Math.cos(angle), (float) Math.sin(angle), 300f, 400f, 4f, 1);
+        }
+        hitIds.clear();
+        hitDamage.clear();
+        ProjectileSystem.update(projectiles, World.TICK, world.getMap(), enemies, grid, candidates, hitIds, hitDamage);
+        return hitIds.size;
+    }
+}
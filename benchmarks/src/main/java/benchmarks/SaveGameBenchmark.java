@@ -0,0 +1,49 @@
+package benchmarks;
+
+import entities.MainCharacterTypes.Warrior;
+import org.openjdk.jmh.annotations.*;
+import world.SaveGame;
+import world.World;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SaveGameBenchmark {
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    private World world;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate(mapSize), 200);
+        encoded = SaveGame.encode(SaveGame.capture(world, MapSize.SEED, 1));
+    }
+
+    // The part of a save that runs on the game thread.
+    @Benchmark
+    public SaveGame.Snapshot capture() {
+        return SaveGame.capture(world, MapSize.SEED, 1);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return SaveGame.encode(SaveGame.capture(world, MapSize.SEED, 1));
+    }
+
+    @Benchmark
+    public World decode() throws IOException {
+        World loaded = SaveGame.decode(encoded.duplicate(), false).world;
+        loaded.dispose();
+        return loaded;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import maps.DungeonGenerator;
+import maps.WalkableIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SpawnBenchmark {
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    private DungeonGenerator dungeon;
+    private WalkableIndex index;
+    private final Random random = new Random(MapSize.SEED);
+
+    @Setup(Level.Trial)
+    public void generate() {
+        dungeon = MapSize.generate(mapSize);
+        index = dungeon.getWalkableIndex();
+    }
+
+    @Benchmark
+    public WalkableIndex buildIndex() {
+        return WalkableIndex.build(dungeon.getMap(), dungeon.getRooms(), 0, 0, dungeon.getWidth(), dungeon.getHeight());
+    }
+
+    @Benchmark
+    public int randomTileAwayFromCenter() {
+        return index.randomTileAwayFrom(-1, random, dungeon.getWidth() / 2, dungeon.getHeight() / 2, 10);
+    }
+}
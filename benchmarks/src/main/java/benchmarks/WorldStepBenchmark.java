@@ -0,0 +1,38 @@
+package benchmarks;
+
+import entities.MainCharacterTypes.Warrior;
+import org.openjdk.jmh.annotations.*;
+import world.PlayerInput;
+import world.World;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WorldStepBenchmark {
+
+    @Param({"100x60", "1000x600"})
+    public String mapSize;
+
+    @Param({"10", "1000", "10000"})
+    public int enemyCount;
+
+    private World world;
+    private final PlayerInput input = new PlayerInput();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        world = new World(new Warrior(), MapSize.generate(mapSize), enemyCount);
+        world.getPlayer().health = Integer.MAX_VALUE;
+    }
+
+    @Benchmark
+    public long step() {
+        world.step(input);
+        return world.getTick();
+    }
+}
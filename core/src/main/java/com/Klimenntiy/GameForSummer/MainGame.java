@@ -1,11 +1,74 @@
 package com.Klimenntiy.GameForSummer;
 
 import com.badlogic.gdx.Game;
+import screens.GameScreen;
 import screens.MenuScreen;
+import world.InputPlayback;
+
+import java.io.File;
 
 public class MainGame extends Game {
+    private final boolean chunkedWorld;
+    private final boolean profiling;
+    private boolean simulationThreaded;
+    private File recordFile;
+    private InputPlayback replay;
+
+    public MainGame() {
+        this(false);
+    }
+
+    public MainGame(boolean chunkedWorld) {
+        this(chunkedWorld, false);
+    }
+
+    /** With profiling on, the frame profiler records from the first frame instead of waiting for F3. */
+    public MainGame(boolean chunkedWorld, boolean profiling) {
+        this.chunkedWorld = chunkedWorld;
+        this.profiling = profiling;
+    }
+
+    public boolean isChunkedWorld() {
+        return chunkedWorld;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Steps the game on its own thread and draws interpolated snapshots of
+     * it, instead of stepping and drawing in turn on the render thread.
+     * Runs that record or replay input always step on the render thread.
+     */
+    public void setSimulationThreaded(boolean simulationThreaded) {
+        this.simulationThreaded = simulationThreaded;
+    }
+
+    public boolean isSimulationThreaded() {
+        return simulationThreaded;
+    }
+
+    /** Every run started from the menu records its input to this file, replacing the previous run. */
+    public void setRecordFile(File recordFile) {
+        this.recordFile = recordFile;
+    }
+
+    public File getRecordFile() {
+        return recordFile;
+    }
+
+    /** Plays the recording back in real time instead of showing the menu. */
+    public void setReplay(InputPlayback replay) {
+        this.replay = replay;
+    }
+
     @Override
     public void create() {
-        setScreen(new MenuScreen(this));
+        if (replay != null) {
+            setScreen(new GameScreen(this, replay));
+        } else {
+            setScreen(new MenuScreen(this));
+        }
     }
 }
@@ -0,0 +1,133 @@
+package entities;
+
+import com.badlogic.gdx.utils.IntArray;
+import maps.DungeonGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the level that buckets enemy ids by the cell holding the
+ * enemy's bottom-left corner. Each cell is a doubly linked list threaded
+ * through id-indexed int arrays, so registering and moving never allocates.
+ */
+public class EnemyGrid {
+    public static final int CELL_SIZE = DungeonGenerator.TILE_SIZE * 2;
+    private static final int NONE = -1;
+
+    private final int columns;
+    private final int rows;
+    private final int[] heads;
+    private int[] cellOf;
+    private int[] next;
+    private int[] prev;
+
+    public EnemyGrid(int mapWidth, int mapHeight) {
+        columns = (mapWidth * DungeonGenerator.TILE_SIZE + CELL_SIZE - 1) / CELL_SIZE;
+        rows = (mapHeight * DungeonGenerator.TILE_SIZE + CELL_SIZE - 1) / CELL_SIZE;
+        heads = new int[columns * rows];
+        Arrays.fill(heads, NONE);
+        cellOf = new int[16];
+        next = new int[16];
+        prev = new int[16];
+        Arrays.fill(cellOf, NONE);
+    }
+
+    public void add(int id, float x, float y) {
+        ensureId(id);
+        link(id, cellOf(x, y));
+    }
+
+    public void remove(int id) {
+        if (id >= cellOf.length || cellOf[id] == NONE) return;
+        unlink(id);
+    }
+
+    public void update(int id, float x, float y) {
+        int cell = cellOf(x, y);
+        if (cell == cellOf[id]) return;
+        if (cellOf[id] != NONE) unlink(id);
+        link(id, cell);
+    }
+
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(cellOf, NONE);
+    }
+
+    /** Collects the ids of every enemy whose box overlaps the given rectangle. */
+    public void queryBox(EnemyStore store, float x, float y, float w, float h, IntArray out) {
+        int minCol = column(x - EnemySystem.SIZE);
+        int maxCol = column(x + w);
+        int minRow = row(y - EnemySystem.SIZE);
+        int maxRow = row(y + h);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                for (int id = heads[r * columns + c]; id != NONE; id = next[id]) {
+                    if (EnemySystem.isHit(store, store.index(id), x, y, w, h)) out.add(id);
+                }
+            }
+        }
+    }
+
+    /** Collects the ids of every enemy whose position lies within radius of (cx, cy). */
+    public void queryRange(EnemyStore store, float cx, float cy, float radius, IntArray out) {
+        int minCol = column(cx - radius);
+        int maxCol = column(cx + radius);
+        int minRow = row(cy - radius);
+        int maxRow = row(cy + radius);
+        float radiusSq = radius * radius;
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                for (int id = heads[r * columns + c]; id != NONE; id = next[id]) {
+                    int i = store.index(id);
+                    float dx = store.x[i] - cx;
+                    float dy = store.y[i] - cy;
+                    if (dx * dx + dy * dy <= radiusSq) out.add(id);
+                }
+            }
+        }
+    }
+
+    private void link(int id, int cell) {
+        int head = heads[cell];
+        prev[id] = NONE;
+        next[id] = head;
+        if (head != NONE) prev[head] = id;
+        heads[cell] = id;
+        cellOf[id] = cell;
+    }
+
+    private void unlink(int id) {
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else {
+            heads[cellOf[id]] = next[id];
+        }
+        if (next[id] != NONE) prev[next[id]] = prev[id];
+        cellOf[id] = NONE;
+    }
+
+    private void ensureId(int id) {
+        if (id < cellOf.length) return;
+        int capacity = Math.max(id + 1, cellOf.length * 2);
+        int old = cellOf.length;
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        Arrays.fill(cellOf, old, capacity, NONE);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+
+    private int cellOf(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    private int column(float x) {
+        int c = (int) Math.floor(x / CELL_SIZE);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    private int row(float y) {
+        int r = (int) Math.floor(y / CELL_SIZE);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
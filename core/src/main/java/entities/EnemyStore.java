@@ -0,0 +1,183 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * Enemy components stored as parallel primitive columns. Live enemies are
+ * packed into indices [0, size()), so systems iterate the columns linearly.
+ * Removing an enemy moves the last one into its slot; code that needs to hold
+ * on to an enemy across removals keeps its id, which stays valid until the
+ * enemy itself is removed.
+ *
+ * The columns an AI tick changes also have a next-state twin. A tick reads
+ * the current columns, writes every live enemy's result into the next ones
+ * and then calls {@link #swapBuffers()}, so no enemy ever sees another
+ * enemy's half-updated state whatever order or thread it runs on.
+ */
+public class EnemyStore {
+    public float[] x;
+    public float[] y;
+    public int[] health;
+    public float[] attackTimer;
+    public byte[] behavior;
+    public float[] patrolDirX;
+    public float[] patrolDirY;
+    public float[] patrolTimer;
+    public float[] facingAngle;
+    public long[] rng;
+
+    public float[] nextX;
+    public float[] nextY;
+    public float[] nextAttackTimer;
+    public float[] nextPatrolDirX;
+    public float[] nextPatrolDirY;
+    public float[] nextPatrolTimer;
+    public float[] nextFacingAngle;
+    public long[] nextRng;
+
+    private int[] idOf;
+    private int[] indexOf;
+    private int[] freeIds;
+    private int freeCount;
+    private int nextId;
+    private int size;
+
+    public EnemyStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        x = new float[capacity];
+        y = new float[capacity];
+        health = new int[capacity];
+        attackTimer = new float[capacity];
+        behavior = new byte[capacity];
+        patrolDirX = new float[capacity];
+        patrolDirY = new float[capacity];
+        patrolTimer = new float[capacity];
+        facingAngle = new float[capacity];
+        rng = new long[capacity];
+        nextX = new float[capacity];
+        nextY = new float[capacity];
+        nextAttackTimer = new float[capacity];
+        nextPatrolDirX = new float[capacity];
+        nextPatrolDirY = new float[capacity];
+        nextPatrolTimer = new float[capacity];
+        nextFacingAngle = new float[capacity];
+        nextRng = new long[capacity];
+        idOf = new int[capacity];
+        indexOf = new int[capacity];
+        freeIds = new int[capacity];
+        Arrays.fill(indexOf, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Upper bound on ids handed out so far, for id-indexed side tables. */
+    public int idCapacity() {
+        return indexOf.length;
+    }
+
+    public int id(int index) {
+        return idOf[index];
+    }
+
+    /** Dense index of a live enemy, or -1 if the id has been removed. */
+    public int index(int id) {
+        return indexOf[id];
+    }
+
+    /** Adds an enemy with zeroed components apart from position; returns its id. */
+    public int create(float ex, float ey) {
+        if (size == x.length) grow(size * 2);
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        if (id >= indexOf.length) growIds(indexOf.length * 2);
+
+        int i = size++;
+        x[i] = ex;
+        y[i] = ey;
+        health[i] = 0;
+        attackTimer[i] = 0f;
+        behavior[i] = 0;
+        patrolDirX[i] = 0f;
+        patrolDirY[i] = 0f;
+        patrolTimer[i] = 0f;
+        facingAngle[i] = 0f;
+        rng[i] = 0L;
+        idOf[i] = id;
+        indexOf[id] = i;
+        return id;
+    }
+
+    /** Swap-removes the enemy; the enemy previously at the last index takes its place. */
+    public void remove(int id) {
+        int i = indexOf[id];
+        if (i < 0) return;
+        int last = --size;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            health[i] = health[last];
+            attackTimer[i] = attackTimer[last];
+            behavior[i] = behavior[last];
+            patrolDirX[i] = patrolDirX[last];
+            patrolDirY[i] = patrolDirY[last];
+            patrolTimer[i] = patrolTimer[last];
+            facingAngle[i] = facingAngle[last];
+            rng[i] = rng[last];
+            int movedId = idOf[last];
+            idOf[i] = movedId;
+            indexOf[movedId] = i;
+        }
+        indexOf[id] = -1;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    /** Makes the next-state columns current; the old current ones become scratch. */
+    public void swapBuffers() {
+        float[] f;
+        f = x; x = nextX; nextX = f;
+        f = y; y = nextY; nextY = f;
+        f = attackTimer; attackTimer = nextAttackTimer; nextAttackTimer = f;
+        f = patrolDirX; patrolDirX = nextPatrolDirX; nextPatrolDirX = f;
+        f = patrolDirY; patrolDirY = nextPatrolDirY; nextPatrolDirY = f;
+        f = patrolTimer; patrolTimer = nextPatrolTimer; nextPatrolTimer = f;
+        f = facingAngle; facingAngle = nextFacingAngle; nextFacingAngle = f;
+        long[] l = rng; rng = nextRng; nextRng = l;
+    }
+
+    public void clear() {
+        size = 0;
+        freeCount = 0;
+        nextId = 0;
+        Arrays.fill(indexOf, -1);
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        health = Arrays.copyOf(health, capacity);
+        attackTimer = Arrays.copyOf(attackTimer, capacity);
+        behavior = Arrays.copyOf(behavior, capacity);
+        patrolDirX = Arrays.copyOf(patrolDirX, capacity);
+        patrolDirY = Arrays.copyOf(patrolDirY, capacity);
+        patrolTimer = Arrays.copyOf(patrolTimer, capacity);
+        facingAngle = Arrays.copyOf(facingAngle, capacity);
+        rng = Arrays.copyOf(rng, capacity);
+        nextX = new float[capacity];
+        nextY = new float[capacity];
+        nextAttackTimer = new float[capacity];
+        nextPatrolDirX = new float[capacity];
+        nextPatrolDirY = new float[capacity];
+        nextPatrolTimer = new float[capacity];
+        nextFacingAngle = new float[capacity];
+        nextRng = new long[capacity];
+        idOf = Arrays.copyOf(idOf, capacity);
+    }
+
+    private void growIds(int capacity) {
+        int old = indexOf.length;
+        indexOf = Arrays.copyOf(indexOf, capacity);
+        Arrays.fill(indexOf, old, capacity, -1);
+    }
+}
@@ -0,0 +1,252 @@
+package entities;
+
+import maps.DungeonGenerator;
+import maps.FieldOfView;
+import maps.FlowField;
+import maps.TileSource;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Enemy behaviour, run over the columns of an {@link EnemyStore}.
+ *
+ * An AI tick only reads an enemy's own current state plus shared data that
+ * does not change during the tick (player positions, map, flow fields), and
+ * writes into the store's next-state columns. Each enemy draws randomness
+ * from its own generator state. The result is therefore the same whether the
+ * enemies are updated in one loop or split across any number of threads.
+ */
+public final class EnemySystem {
+    public static final int SIZE = 12;
+    public static final int MAX_HEALTH = 3;
+    public static final float SPEED = 40f;
+    public static final float ATTACK_RANGE = 16f;
+    public static final float ATTACK_COOLDOWN = 1f;
+    public static final float SIGHT_RANGE = 100f;
+
+    /** Below this many enemies a parallel update runs on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 2048;
+    private static final int PARTITION_SIZE = 1024;
+
+    private static final byte PATROL = (byte) BehaviorType.PATROL.ordinal();
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
+
+    private EnemySystem() {}
+
+    public static int spawn(EnemyStore store, float x, float y, long seed) {
+        int id = store.create(x, y);
+        int i = store.index(id);
+        store.health[i] = MAX_HEALTH;
+        store.rng[i] = seed;
+        if (nextRandom(store.rng, i) < 0.7f) {
+            store.behavior[i] = PATROL;
+            chooseNewPatrolDirection(store.rng, store.patrolDirX, store.patrolDirY, store.patrolTimer, i);
+        } else {
+            store.behavior[i] = (byte) BehaviorType.WAIT.ordinal();
+        }
+        return id;
+    }
+
+    public static void update(EnemyStore store, float delta, EnemyTargets targets, TileSource map) {
+        updateRange(store, 0, store.size(), delta, targets, map);
+        store.swapBuffers();
+    }
+
+    /** Same result as {@link #update}, with the enemies partitioned across the pool. */
+    public static void updateParallel(ForkJoinPool pool, EnemyStore store, float delta, EnemyTargets targets,
+                                      TileSource map) {
+        if (pool == null || store.size() < PARALLEL_THRESHOLD) {
+            update(store, delta, targets, map);
+            return;
+        }
+        pool.invoke(new UpdateTask(store, 0, store.size(), delta, targets, map));
+        store.swapBuffers();
+    }
+
+    private static final class UpdateTask extends RecursiveAction {
+        private final EnemyStore store;
+        private final int from, to;
+        private final float delta;
+        private final EnemyTargets targets;
+        private final TileSource map;
+
+        UpdateTask(EnemyStore store, int from, int to, float delta, EnemyTargets targets, TileSource map) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+            this.delta = delta;
+            this.targets = targets;
+            this.map = map;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARTITION_SIZE) {
+                updateRange(store, from, to, delta, targets, map);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new UpdateTask(store, from, mid, delta, targets, map),
+                new UpdateTask(store, mid, to, delta, targets, map));
+        }
+    }
+
+    private static void updateRange(EnemyStore store, int from, int to, float delta, EnemyTargets targets,
+                                    TileSource map) {
+        for (int i = from; i < to; i++) {
+            store.nextX[i] = store.x[i];
+            store.nextY[i] = store.y[i];
+            store.nextAttackTimer[i] = store.attackTimer[i] - delta;
+            store.nextPatrolDirX[i] = store.patrolDirX[i];
+            store.nextPatrolDirY[i] = store.patrolDirY[i];
+            store.nextPatrolTimer[i] = store.patrolTimer[i];
+            store.nextFacingAngle[i] = store.facingAngle[i];
+            store.nextRng[i] = store.rng[i];
+
+            int t = nearestVisibleTarget(store, i, targets);
+            if (t >= 0) {
+                moveTowardsPlayer(store, i, delta, targets.x[t], targets.y[t], map, targets.flow[t]);
+            } else if (store.behavior[i] == PATROL) {
+                patrol(store, i, delta, map);
+            }
+        }
+    }
+
+    /** The closest target the enemy can see, or -1; ties go to the earlier one. */
+    private static int nearestVisibleTarget(EnemyStore store, int i, EnemyTargets targets) {
+        int nearest = -1;
+        float nearestSq = Float.MAX_VALUE;
+        for (int t = 0, n = targets.size(); t < n; t++) {
+            float dx = targets.x[t] - store.x[i];
+            float dy = targets.y[t] - store.y[i];
+            float distSq = dx * dx + dy * dy;
+            if (distSq < nearestSq && canSeePlayer(store, i, targets.x[t], targets.y[t], targets.fov[t])) {
+                nearest = t;
+                nearestSq = distSq;
+            }
+        }
+        return nearest;
+    }
+
+    /** SplitMix64 step on the enemy's own generator; returns a float in [0, 1). */
+    private static float nextRandom(long[] rng, int i) {
+        long z = (rng[i] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 40) * 0x1.0p-24f;
+    }
+
+    private static void chooseNewPatrolDirection(long[] rng, float[] dirX, float[] dirY, float[] timer, int i) {
+        double angle = nextRandom(rng, i) * 2 * Math.PI;
+        dirX[i] = (float) StrictMath.cos(angle);
+        dirY[i] = (float) StrictMath.sin(angle);
+        timer[i] = 2 + nextRandom(rng, i) * 3;
+    }
+
+    private static void patrol(EnemyStore store, int i, float delta, TileSource map) {
+        store.nextPatrolTimer[i] -= delta;
+        if (store.nextPatrolTimer[i] <= 0) {
+            chooseNewPatrolDirection(store.nextRng, store.nextPatrolDirX, store.nextPatrolDirY, store.nextPatrolTimer, i);
+        }
+
+        float dirX = store.nextPatrolDirX[i];
+        float dirY = store.nextPatrolDirY[i];
+        store.nextFacingAngle[i] = (float) StrictMath.toDegrees(StrictMath.atan2(dirY, dirX));
+
+        float newX = store.x[i] + dirX * SPEED * delta;
+        float newY = store.y[i] + dirY * SPEED * delta;
+
+        if (canWalkThrough(newX, newY, map)) {
+            store.nextX[i] = newX;
+            store.nextY[i] = newY;
+        } else {
+            chooseNewPatrolDirection(store.nextRng, store.nextPatrolDirX, store.nextPatrolDirY, store.nextPatrolTimer, i);
+        }
+    }
+
+    private static void moveTowardsPlayer(EnemyStore store, int i, float delta, float playerX, float playerY,
+                                          TileSource map, FlowField flow) {
+        float x = store.x[i];
+        float y = store.y[i];
+        float dx = playerX - x;
+        float dy = playerY - y;
+        float dist = (float) Math.sqrt(dx * dx + dy * dy);
+        if (dist == 0) return;
+
+        float minDist = (SIZE + 12) / 2f + 2;
+        if (dist <= minDist) return;
+
+        int tileX = (int) ((x + SIZE / 2f) / TILE_SIZE);
+        int tileY = (int) ((y + SIZE / 2f) / TILE_SIZE);
+        int step = flow.stepFrom(tileX, tileY);
+        if (step != FlowField.NONE) {
+            float offset = (TILE_SIZE - SIZE) / 2f;
+            float tdx = (tileX + FlowField.stepX(step)) * TILE_SIZE + offset - x;
+            float tdy = (tileY + FlowField.stepY(step)) * TILE_SIZE + offset - y;
+            float targetDist = (float) Math.sqrt(tdx * tdx + tdy * tdy);
+            if (targetDist > 0) {
+                dx = tdx;
+                dy = tdy;
+                dist = targetDist;
+            }
+        }
+
+        float dirX = dx / dist;
+        float dirY = dy / dist;
+
+        store.nextFacingAngle[i] = (float) StrictMath.toDegrees(StrictMath.atan2(dirY, dirX));
+
+        float newX = x + dirX * SPEED * delta;
+        float newY = y + dirY * SPEED * delta;
+
+        if (canWalkThrough(newX, newY, map)) {
+            store.nextX[i] = newX;
+            store.nextY[i] = newY;
+        } else if (canWalkThrough(newX, y, map)) {
+            store.nextX[i] = newX;
+        } else if (canWalkThrough(x, newY, map)) {
+            store.nextY[i] = newY;
+        }
+    }
+
+    private static boolean canWalkThrough(float nx, float ny, TileSource map) {
+        int tileX1 = (int) (nx / TILE_SIZE);
+        int tileY1 = (int) (ny / TILE_SIZE);
+        int tileX2 = (int) ((nx + SIZE - 1) / TILE_SIZE);
+        int tileY2 = (int) ((ny + SIZE - 1) / TILE_SIZE);
+
+        return map.isWalkable(tileX1, tileY1) &&
+            map.isWalkable(tileX2, tileY1) &&
+            map.isWalkable(tileX1, tileY2) &&
+            map.isWalkable(tileX2, tileY2);
+    }
+
+    /** In range and on a tile the player can see; sight is symmetric, so the player's view answers for the enemy. */
+    private static boolean canSeePlayer(EnemyStore store, int i, float playerX, float playerY, FieldOfView fov) {
+        float dx = playerX - store.x[i];
+        float dy = playerY - store.y[i];
+        if (dx * dx + dy * dy > SIGHT_RANGE * SIGHT_RANGE) return false;
+        return fov.isVisible((int) ((store.x[i] + SIZE / 2f) / TILE_SIZE), (int) ((store.y[i] + SIZE / 2f) / TILE_SIZE));
+    }
+
+    public static boolean canAttack(EnemyStore store, int i, float playerX, float playerY) {
+        float dx = playerX - store.x[i];
+        float dy = playerY - store.y[i];
+        return dx * dx + dy * dy <= ATTACK_RANGE * ATTACK_RANGE && store.attackTimer[i] <= 0f;
+    }
+
+    public static void attack(EnemyStore store, int i) {
+        store.attackTimer[i] = ATTACK_COOLDOWN;
+    }
+
+    public static boolean isHit(EnemyStore store, int i, float attackX, float attackY, float attackW, float attackH) {
+        float x = store.x[i];
+        float y = store.y[i];
+        return attackX < x + SIZE &&
+            attackX + attackW > x &&
+            attackY < y + SIZE &&
+            attackY + attackH > y;
+    }
+}
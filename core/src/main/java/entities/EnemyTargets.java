@@ -0,0 +1,37 @@
+package entities;
+
+import maps.FieldOfView;
+import maps.FlowField;
+
+/**
+ * The players enemies may chase during one tick, each with the view and
+ * flow field around it. An enemy goes for the nearest one it can see and
+ * walks that player's flow field. Filled before the update and only read
+ * during it.
+ */
+public final class EnemyTargets {
+    public static final int MAX = 4;
+
+    final float[] x = new float[MAX];
+    final float[] y = new float[MAX];
+    final FlowField[] flow = new FlowField[MAX];
+    final FieldOfView[] fov = new FieldOfView[MAX];
+    private int count;
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void add(float x, float y, FlowField flow, FieldOfView fov) {
+        if (count == MAX) throw new IllegalStateException("At most " + MAX + " targets");
+        this.x[count] = x;
+        this.y[count] = y;
+        this.flow[count] = flow;
+        this.fov[count] = fov;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+}
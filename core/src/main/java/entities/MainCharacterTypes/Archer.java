@@ -1,11 +1,14 @@
 package entities.MainCharacterTypes;
 
+import entities.Player;
+
 public class Archer extends PlayerClass {
     public Archer() {
         maxHealth = 10;
         attackDamage = 1;
         attackSpeed = 0.3f;
         attackRange = 100f;
+        attackProfile = AttackProfile.projectile(Player.SIZE / 2f, 600f, 4f);
     }
 
     @Override
@@ -0,0 +1,35 @@
+package entities.MainCharacterTypes;
+
+/**
+ * How a class attacks: an instant melee box in front of the player or a
+ * projectile fired along the facing direction. Built once per class, so the
+ * attack path reads fields instead of matching class names.
+ */
+public final class AttackProfile {
+    public enum Kind { MELEE, PROJECTILE }
+
+    public final Kind kind;
+    /** Distance from the player's center to where the box or projectile starts. */
+    public final float offset;
+    /** Melee box extent along and across the facing direction. */
+    public final float length, thickness;
+    /** Projectile speed in pixels per second and side length of its square. */
+    public final float speed, size;
+
+    private AttackProfile(Kind kind, float offset, float length, float thickness, float speed, float size) {
+        this.kind = kind;
+        this.offset = offset;
+        this.length = length;
+        this.thickness = thickness;
+        this.speed = speed;
+        this.size = size;
+    }
+
+    public static AttackProfile melee(float offset, float length, float thickness) {
+        return new AttackProfile(Kind.MELEE, offset, length, thickness, 0f, 0f);
+    }
+
+    public static AttackProfile projectile(float offset, float speed, float size) {
+        return new AttackProfile(Kind.PROJECTILE, offset, 0f, 0f, speed, size);
+    }
+}
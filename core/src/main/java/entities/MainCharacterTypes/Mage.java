@@ -1,11 +1,14 @@
 package entities.MainCharacterTypes;
 
+import entities.Player;
+
 public class Mage extends PlayerClass {
     public Mage() {
         maxHealth = 8;
         attackDamage = 3;
         attackSpeed = 0.6f;
         attackRange = 120f;
+        attackProfile = AttackProfile.projectile(Player.SIZE / 2f, 240f, 8f);
     }
 
     @Override
@@ -5,10 +5,24 @@ public abstract class PlayerClass {
     protected int attackDamage;
     protected float attackSpeed;
     protected float attackRange;
+    protected AttackProfile attackProfile;
 
     public int getMaxHealth() { return maxHealth; }
     public int getAttackDamage() { return attackDamage; }
     public float getAttackSpeed() { return attackSpeed; }
+    /** How far a projectile flies before it is spent. */
+    public float getAttackRange() { return attackRange; }
+    public AttackProfile getAttackProfile() { return attackProfile; }
 
     public abstract String getClassName();
+
+    /** The class whose {@link #getClassName()} is the given name. */
+    public static PlayerClass forName(String name) {
+        switch (name) {
+            case "Warrior": return new Warrior();
+            case "Mage": return new Mage();
+            case "Archer": return new Archer();
+            default: throw new IllegalArgumentException("Unknown player class: " + name);
+        }
+    }
 }
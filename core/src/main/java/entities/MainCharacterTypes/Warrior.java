@@ -1,11 +1,14 @@
 package entities.MainCharacterTypes;
 
+import entities.Player;
+
 public class Warrior extends PlayerClass {
     public Warrior() {
         maxHealth = 15;
         attackDamage = 2;
         attackSpeed = 0.4f;
         attackRange = 20f;
+        attackProfile = AttackProfile.melee(Player.SIZE / 2f, 16f, 16f);
     }
 
     @Override
@@ -0,0 +1,36 @@
+package entities;
+
+import entities.MainCharacterTypes.PlayerClass;
+
+public class Player {
+    public static final int SIZE = 12;
+    public static final float SPEED = 150f;
+
+    public float x, y;
+    public float facingAngle = 0f;
+    public int health;
+    public float attackCooldown = 0f;
+
+    private final PlayerClass playerClass;
+
+    public Player(PlayerClass playerClass) {
+        this.playerClass = playerClass;
+        this.health = playerClass.getMaxHealth();
+    }
+
+    public PlayerClass getPlayerClass() {
+        return playerClass;
+    }
+
+    public boolean isDead() {
+        return health <= 0;
+    }
+
+    public float centerX() {
+        return x + SIZE / 2f;
+    }
+
+    public float centerY() {
+        return y + SIZE / 2f;
+    }
+}
@@ -0,0 +1,88 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * Live projectiles as parallel primitive columns, packed into indices
+ * [0, size()). Projectiles are short-lived and nothing refers to one from
+ * outside, so there are no ids: removal moves the last projectile into the
+ * freed slot. The columns only grow, so firing allocates nothing once the
+ * store has reached its working size.
+ *
+ * (x, y) is the projectile's center.
+ */
+public class ProjectileStore {
+    public float[] x;
+    public float[] y;
+    public float[] dirX;
+    public float[] dirY;
+    public float[] speed;
+    /** Distance left before the projectile is spent. */
+    public float[] remaining;
+    /** Side length of the projectile's square. */
+    public float[] side;
+    public int[] damage;
+
+    private int count;
+
+    public ProjectileStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        x = new float[capacity];
+        y = new float[capacity];
+        dirX = new float[capacity];
+        dirY = new float[capacity];
+        speed = new float[capacity];
+        remaining = new float[capacity];
+        side = new float[capacity];
+        damage = new int[capacity];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Adds a projectile moving along the unit vector (dx, dy); returns its index. */
+    public int create(float px, float py, float dx, float dy, float projectileSpeed, float range,
+                      float projectileSide, int projectileDamage) {
+        if (count == x.length) grow(count * 2);
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        dirX[i] = dx;
+        dirY[i] = dy;
+        speed[i] = projectileSpeed;
+        remaining[i] = range;
+        side[i] = projectileSide;
+        damage[i] = projectileDamage;
+        return i;
+    }
+
+    /** Swap-removes the projectile at index i. */
+    public void remove(int i) {
+        int last = --count;
+        if (i == last) return;
+        x[i] = x[last];
+        y[i] = y[last];
+        dirX[i] = dirX[last];
+        dirY[i] = dirY[last];
+        speed[i] = speed[last];
+        remaining[i] = remaining[last];
+        side[i] = side[last];
+        damage[i] = damage[last];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        dirX = Arrays.copyOf(dirX, capacity);
+        dirY = Arrays.copyOf(dirY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        remaining = Arrays.copyOf(remaining, capacity);
+        side = Arrays.copyOf(side, capacity);
+        damage = Arrays.copyOf(damage, capacity);
+    }
+}
@@ -0,0 +1,132 @@
+package entities;
+
+import com.badlogic.gdx.utils.IntArray;
+import maps.DungeonGenerator;
+import maps.TileSource;
+
+/**
+ * Moves projectiles and finds what they hit. Each tick a projectile sweeps
+ * the segment it travels: tiles are walked cell by cell along it, so a
+ * projectile faster than a tile per tick still stops at the first wall, and
+ * enemies are tested against the same segment, nearest first. Hits are only
+ * collected here; the caller applies the damage afterwards in one pass.
+ */
+public final class ProjectileSystem {
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
+
+    private ProjectileSystem() {}
+
+    /**
+     * Advances every projectile by delta seconds. For each enemy hit, its id
+     * and the damage dealt are appended to hitIds and hitDamage. Spent
+     * projectiles are removed. candidates is scratch space for grid queries.
+     */
+    public static void update(ProjectileStore store, float delta, TileSource map,
+                              EnemyStore enemies, EnemyGrid grid, IntArray candidates,
+                              IntArray hitIds, IntArray hitDamage) {
+        for (int i = store.size() - 1; i >= 0; i--) {
+            float x = store.x[i];
+            float y = store.y[i];
+            float dirX = store.dirX[i];
+            float dirY = store.dirY[i];
+            float travel = Math.min(store.speed[i] * delta, store.remaining[i]);
+
+            float reach = distanceToWall(map, x, y, dirX, dirY, travel);
+
+            float half = store.side[i] / 2f;
+            float endX = x + dirX * reach;
+            float endY = y + dirY * reach;
+            candidates.clear();
+            grid.queryBox(enemies, Math.min(x, endX) - half, Math.min(y, endY) - half,
+                Math.abs(endX - x) + 2 * half, Math.abs(endY - y) + 2 * half, candidates);
+
+            int target = -1;
+            float nearest = reach;
+            for (int k = 0; k < candidates.size; k++) {
+                int id = candidates.get(k);
+                int e = enemies.index(id);
+                float t = entryDistance(x, y, dirX, dirY,
+                    enemies.x[e] - half, enemies.y[e] - half,
+                    enemies.x[e] + EnemySystem.SIZE + half, enemies.y[e] + EnemySystem.SIZE + half);
+                if (t >= 0 && t <= nearest) {
+                    nearest = t;
+                    target = id;
+                }
+            }
+
+            if (target >= 0) {
+                hitIds.add(target);
+                hitDamage.add(store.damage[i]);
+                store.remove(i);
+            } else if (reach < travel || store.remaining[i] - travel <= 0f) {
+                store.remove(i);
+            } else {
+                store.x[i] = endX;
+                store.y[i] = endY;
+                store.remaining[i] -= travel;
+            }
+        }
+    }
+
+    /**
+     * Distance along the unit vector (dirX, dirY) from (x, y) to the first
+     * wall tile, or distance if there is none that close. Walks the tile grid
+     * one cell boundary at a time.
+     */
+    public static float distanceToWall(TileSource map, float x, float y, float dirX, float dirY, float distance) {
+        int tileX = (int) Math.floor(x / TILE_SIZE);
+        int tileY = (int) Math.floor(y / TILE_SIZE);
+        if (!map.isWalkable(tileX, tileY)) return 0f;
+
+        int stepX = dirX > 0 ? 1 : (dirX < 0 ? -1 : 0);
+        int stepY = dirY > 0 ? 1 : (dirY < 0 ? -1 : 0);
+        float deltaX = stepX != 0 ? TILE_SIZE / Math.abs(dirX) : Float.POSITIVE_INFINITY;
+        float deltaY = stepY != 0 ? TILE_SIZE / Math.abs(dirY) : Float.POSITIVE_INFINITY;
+        float nextX = stepX > 0 ? ((tileX + 1) * TILE_SIZE - x) / dirX
+            : stepX < 0 ? (tileX * TILE_SIZE - x) / dirX : Float.POSITIVE_INFINITY;
+        float nextY = stepY > 0 ? ((tileY + 1) * TILE_SIZE - y) / dirY
+            : stepY < 0 ? (tileY * TILE_SIZE - y) / dirY : Float.POSITIVE_INFINITY;
+
+        while (true) {
+            float t;
+            if (nextX < nextY) {
+                t = nextX;
+                tileX += stepX;
+                nextX += deltaX;
+            } else {
+                t = nextY;
+                tileY += stepY;
+                nextY += deltaY;
+            }
+            if (t >= distance) return distance;
+            if (!map.isWalkable(tileX, tileY)) return t;
+        }
+    }
+
+    /**
+     * Distance along the unit vector (dirX, dirY) from (x, y) at which the ray
+     * enters the box, 0 if it starts inside, or -1 if it misses.
+     */
+    static float entryDistance(float x, float y, float dirX, float dirY,
+                               float minX, float minY, float maxX, float maxY) {
+        float enter = 0f;
+        float exit = Float.POSITIVE_INFINITY;
+        if (dirX == 0f) {
+            if (x < minX || x > maxX) return -1f;
+        } else {
+            float t1 = (minX - x) / dirX;
+            float t2 = (maxX - x) / dirX;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        if (dirY == 0f) {
+            if (y < minY || y > maxY) return -1f;
+        } else {
+            float t1 = (minY - y) / dirY;
+            float t2 = (maxY - y) / dirY;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return enter <= exit ? enter : -1f;
+    }
+}
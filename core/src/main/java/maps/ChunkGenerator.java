@@ -0,0 +1,90 @@
+package maps;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Builds one chunk of a {@link ChunkedDungeon}. The layout depends only on the
+ * dungeon seed and the chunk coordinates, so an evicted chunk comes back
+ * identical when it is generated again. Every chunk carves a corridor to a
+ * door in the middle of each inner edge, which lines up with the matching
+ * door of the neighbouring chunk.
+ */
+public class ChunkGenerator {
+    private static final int MIN_ROOMS = 3;
+    private static final int MAX_ROOMS = 6;
+    private static final int MIN_ROOM_SIZE = 3;
+    private static final int MAX_ROOM_SIZE = 14;
+    private static final int TUNNEL_HALF_WIDTH = 1;
+
+    private final long seed;
+    private final int chunkSize;
+    private final int chunksX;
+    private final int chunksY;
+
+    public ChunkGenerator(long seed, int chunkSize, int chunksX, int chunksY) {
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.chunksX = chunksX;
+        this.chunksY = chunksY;
+    }
+
+    public TileMap generate(int chunkX, int chunkY) {
+        return generate(chunkX, chunkY, null);
+    }
+
+    /** Generates the chunk and, if rooms is not null, collects its rooms in chunk-local tiles. */
+    public TileMap generate(int chunkX, int chunkY, ArrayList<Room> rooms) {
+        Random random = new Random(chunkSeed(chunkX, chunkY));
+        TileMap tiles = new TileMap(chunkSize, chunkSize);
+        tiles.fill(TileMap.WALL);
+
+        int roomCount = MIN_ROOMS + random.nextInt(MAX_ROOMS - MIN_ROOMS + 1);
+        int prevX = -1, prevY = -1;
+        int firstX = 0, firstY = 0;
+        for (int i = 0; i < roomCount; i++) {
+            int w = MIN_ROOM_SIZE + random.nextInt(MAX_ROOM_SIZE - MIN_ROOM_SIZE + 1);
+            int h = MIN_ROOM_SIZE + random.nextInt(MAX_ROOM_SIZE - MIN_ROOM_SIZE + 1);
+            int x = 2 + random.nextInt(chunkSize - w - 3);
+            int y = 2 + random.nextInt(chunkSize - h - 3);
+            tiles.fillRect(x, y, w, h, TileMap.EMPTY);
+            if (rooms != null) rooms.add(new Room(x, y, w, h));
+
+            int cx = x + w / 2;
+            int cy = y + h / 2;
+            if (i == 0) {
+                firstX = cx;
+                firstY = cy;
+            } else {
+                carve(tiles, prevX, prevY, cx, cy, true);
+            }
+            prevX = cx;
+            prevY = cy;
+        }
+
+        int door = chunkSize / 2;
+        if (chunkX > 0) carve(tiles, firstX, firstY, 0, door, false);
+        if (chunkX < chunksX - 1) carve(tiles, firstX, firstY, chunkSize - 1, door, false);
+        if (chunkY > 0) carve(tiles, firstX, firstY, door, 0, true);
+        if (chunkY < chunksY - 1) carve(tiles, firstX, firstY, door, chunkSize - 1, true);
+        return tiles;
+    }
+
+    /** L-shaped tunnel; the bend sits at (x2, y1) when horizontalFirst, else at (x1, y2). */
+    private void carve(TileMap tiles, int x1, int y1, int x2, int y2, boolean horizontalFirst) {
+        int minX = Math.min(x1, x2);
+        int minY = Math.min(y1, y2);
+        int size = TUNNEL_HALF_WIDTH * 2 + 1;
+        int rowY = horizontalFirst ? y1 : y2;
+        int columnX = horizontalFirst ? x2 : x1;
+        tiles.fillRect(minX, rowY - TUNNEL_HALF_WIDTH, Math.abs(x2 - x1) + 1, size, TileMap.EMPTY);
+        tiles.fillRect(columnX - TUNNEL_HALF_WIDTH, minY, size, Math.abs(y2 - y1) + 1, TileMap.EMPTY);
+    }
+
+    private long chunkSeed(int chunkX, int chunkY) {
+        long h = seed ^ (chunkX * 0x9E3779B97F4A7C15L) ^ (chunkY * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
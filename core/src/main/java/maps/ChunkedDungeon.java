@@ -0,0 +1,267 @@
+package maps;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A large dungeon split into square chunks that are generated on a worker
+ * thread as the player approaches and dropped again, least recently used
+ * first, once more than {@code maxResidentChunks} are held. Chunks are
+ * regenerated from the seed when revisited. Tiles of chunks that are not
+ * resident read as walls.
+ *
+ * Streaming and eviction happen in {@link #focus} on the game thread. Tile
+ * reads never modify shared state, so between two focus calls any number of
+ * threads may read tiles at once. Chunks are looked up by slot in a flat
+ * array and recency is a per-slot stamp, so reads and steady-state focus
+ * calls allocate nothing.
+ *
+ * Only tiles are streamed: the dungeon is still a fixed chunksX by chunksY
+ * chunks, and a level keeps some structures for all of it. The fog of war
+ * holds a bit per tile, the enemy grid an int per 2 x 2 tiles and the
+ * minimap an RGB565 pixel per tile, in a pixmap and in a texture. For the
+ * 32 x 32 chunks of {@link world.World#createFloor} (2048 x 2048 tiles)
+ * that is 512 KB of fog, 4 MB of grid and 8 MB each for the minimap pixmap
+ * and texture, however few chunks are resident.
+ */
+public class ChunkedDungeon implements TileSource {
+    public static final int CHUNK_SIZE = 64;
+
+    private static final int PRELOAD_RADIUS = 1;
+    private static final int LOOKAHEAD = 2;
+    private static final int SYNC_MARGIN = 8;
+
+    private final long seed;
+    private final int chunksX;
+    private final int chunksY;
+    private final int maxResidentChunks;
+    private final ChunkGenerator generator;
+
+    private final TileMap[] resident;
+    private final long[] lastUsed;
+    private final boolean[] pending;
+    private final ConcurrentLinkedQueue<KeyedChunk> completed = new ConcurrentLinkedQueue<>();
+    private final ExecutorService worker;
+
+    private int residentCount;
+    private long useClock;
+    private boolean synchronous;
+    private int focusChunkX = Integer.MIN_VALUE;
+    private int focusChunkY = Integer.MIN_VALUE;
+
+    private static final class KeyedChunk {
+        final int slot;
+        final TileMap tiles;
+
+        KeyedChunk(int slot, TileMap tiles) {
+            this.slot = slot;
+            this.tiles = tiles;
+        }
+    }
+
+    public ChunkedDungeon(long seed, int chunksX, int chunksY, int maxResidentChunks) {
+        this.seed = seed;
+        this.chunksX = chunksX;
+        this.chunksY = chunksY;
+        this.maxResidentChunks = Math.max(maxResidentChunks, (2 * PRELOAD_RADIUS + 1) * (2 * PRELOAD_RADIUS + 1) + LOOKAHEAD);
+        this.generator = new ChunkGenerator(SeedStreams.layout(seed), CHUNK_SIZE, chunksX, chunksY);
+        this.resident = new TileMap[chunksX * chunksY];
+        this.lastUsed = new long[resident.length];
+        this.pending = new boolean[resident.length];
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "chunk-generator");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    @Override
+    public int getWidth() {
+        return chunksX * CHUNK_SIZE;
+    }
+
+    @Override
+    public int getHeight() {
+        return chunksY * CHUNK_SIZE;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getChunksX() {
+        return chunksX;
+    }
+
+    public int getChunksY() {
+        return chunksY;
+    }
+
+    /**
+     * Generates requested chunks on the calling thread instead of the worker.
+     * Which chunks are resident then depends only on the player's path, which
+     * recorded runs need to replay identically.
+     */
+    public void setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    public int getResidentChunkCount() {
+        return residentCount;
+    }
+
+    @Override
+    public byte get(int x, int y) {
+        if (x < 0 || y < 0) return TileMap.WALL;
+        TileMap chunk = chunkAt(x / CHUNK_SIZE, y / CHUNK_SIZE);
+        if (chunk == null) return TileMap.WALL;
+        return chunk.get(x % CHUNK_SIZE, y % CHUNK_SIZE);
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return get(x, y) == TileMap.EMPTY;
+    }
+
+    public boolean isChunkResident(int chunkX, int chunkY) {
+        return inChunkBounds(chunkX, chunkY) && resident[slot(chunkX, chunkY)] != null;
+    }
+
+    /**
+     * Generates the chunk on the calling thread if it is not resident yet.
+     * Used for the start chunk and as the fallback in {@link #focus}.
+     */
+    public void loadNow(int chunkX, int chunkY) {
+        if (!inChunkBounds(chunkX, chunkY)) return;
+        int slot = slot(chunkX, chunkY);
+        if (resident[slot] != null) return;
+        add(slot, generator.generate(chunkX, chunkY));
+        evict();
+    }
+
+    private void add(int slot, TileMap tiles) {
+        resident[slot] = tiles;
+        lastUsed[slot] = ++useClock;
+        residentCount++;
+    }
+
+    /** Rooms of a chunk in world tile coordinates, generated without caching the chunk. */
+    public ArrayList<Room> roomsOf(int chunkX, int chunkY) {
+        ArrayList<Room> rooms = new ArrayList<>();
+        generator.generate(chunkX, chunkY, rooms);
+        for (Room room : rooms) {
+            room.x += chunkX * CHUNK_SIZE;
+            room.y += chunkY * CHUNK_SIZE;
+        }
+        return rooms;
+    }
+
+    /**
+     * Streams chunks around the player. Chunks within SYNC_MARGIN tiles of the
+     * player are generated immediately if the worker has not delivered them
+     * yet, so the player never sees or explores a chunk that is not there.
+     */
+    @Override
+    public void focus(int tileX, int tileY) {
+        drainCompleted();
+
+        loadNow(Math.floorDiv(tileX - SYNC_MARGIN, CHUNK_SIZE), Math.floorDiv(tileY - SYNC_MARGIN, CHUNK_SIZE));
+        loadNow(Math.floorDiv(tileX + SYNC_MARGIN, CHUNK_SIZE), Math.floorDiv(tileY - SYNC_MARGIN, CHUNK_SIZE));
+        loadNow(Math.floorDiv(tileX - SYNC_MARGIN, CHUNK_SIZE), Math.floorDiv(tileY + SYNC_MARGIN, CHUNK_SIZE));
+        loadNow(Math.floorDiv(tileX + SYNC_MARGIN, CHUNK_SIZE), Math.floorDiv(tileY + SYNC_MARGIN, CHUNK_SIZE));
+
+        int chunkX = Math.floorDiv(tileX, CHUNK_SIZE);
+        int chunkY = Math.floorDiv(tileY, CHUNK_SIZE);
+        if (chunkX == focusChunkX && chunkY == focusChunkY) return;
+
+        int dirX = focusChunkX == Integer.MIN_VALUE ? 0 : Integer.signum(chunkX - focusChunkX);
+        int dirY = focusChunkY == Integer.MIN_VALUE ? 0 : Integer.signum(chunkY - focusChunkY);
+        focusChunkX = chunkX;
+        focusChunkY = chunkY;
+        touchNeighbourhood(chunkX, chunkY);
+
+        for (int dy = -PRELOAD_RADIUS; dy <= PRELOAD_RADIUS; dy++) {
+            for (int dx = -PRELOAD_RADIUS; dx <= PRELOAD_RADIUS; dx++) {
+                request(chunkX + dx, chunkY + dy);
+            }
+        }
+        for (int i = PRELOAD_RADIUS + 1; i <= LOOKAHEAD && (dirX != 0 || dirY != 0); i++) {
+            request(chunkX + dirX * i, chunkY + dirY * i);
+        }
+    }
+
+    /** Moves the chunks around the player to the recently used end of the eviction order. */
+    private void touchNeighbourhood(int chunkX, int chunkY) {
+        for (int dy = -PRELOAD_RADIUS; dy <= PRELOAD_RADIUS; dy++) {
+            for (int dx = -PRELOAD_RADIUS; dx <= PRELOAD_RADIUS; dx++) {
+                if (!inChunkBounds(chunkX + dx, chunkY + dy)) continue;
+                int slot = slot(chunkX + dx, chunkY + dy);
+                if (resident[slot] != null) lastUsed[slot] = ++useClock;
+            }
+        }
+    }
+
+    private void request(int chunkX, int chunkY) {
+        if (synchronous) {
+            loadNow(chunkX, chunkY);
+            return;
+        }
+        if (!inChunkBounds(chunkX, chunkY)) return;
+        int slot = slot(chunkX, chunkY);
+        if (resident[slot] != null || pending[slot]) return;
+        pending[slot] = true;
+        worker.execute(() -> completed.add(new KeyedChunk(slot, generator.generate(chunkX, chunkY))));
+    }
+
+    private void drainCompleted() {
+        KeyedChunk chunk;
+        boolean added = false;
+        while ((chunk = completed.poll()) != null) {
+            pending[chunk.slot] = false;
+            if (resident[chunk.slot] == null) {
+                add(chunk.slot, chunk.tiles);
+                added = true;
+            }
+        }
+        if (added) evict();
+    }
+
+    /** Drops least recently used chunks outside the player's neighbourhood until within budget. */
+    private void evict() {
+        while (residentCount > maxResidentChunks) {
+            int oldest = -1;
+            for (int slot = 0; slot < resident.length; slot++) {
+                if (resident[slot] == null) continue;
+                if (Math.abs(slot % chunksX - focusChunkX) <= PRELOAD_RADIUS
+                    && Math.abs(slot / chunksX - focusChunkY) <= PRELOAD_RADIUS) {
+                    continue;
+                }
+                if (oldest < 0 || lastUsed[slot] < lastUsed[oldest]) oldest = slot;
+            }
+            if (oldest < 0) return;
+            resident[oldest] = null;
+            residentCount--;
+        }
+    }
+
+    private TileMap chunkAt(int chunkX, int chunkY) {
+        if (chunkX >= chunksX || chunkY >= chunksY) return null;
+        return resident[slot(chunkX, chunkY)];
+    }
+
+    private boolean inChunkBounds(int chunkX, int chunkY) {
+        return chunkX >= 0 && chunkY >= 0 && chunkX < chunksX && chunkY < chunksY;
+    }
+
+    private int slot(int chunkX, int chunkY) {
+        return chunkY * chunksX + chunkX;
+    }
+
+    @Override
+    public void dispose() {
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Generates a set of dungeons concurrently. Level i is built from
+ * {@link SeedStreams#level}(root, i), so the set is identical whatever pool
+ * it runs on and in whatever order the workers finish.
+ */
+public final class DungeonBatch {
+    private DungeonBatch() {}
+
+    public static DungeonGenerator[] generate(long root, int count, int width, int height) {
+        return generate(ForkJoinPool.commonPool(), root, count, width, height);
+    }
+
+    public static DungeonGenerator[] generate(ExecutorService pool, long root, int count, int width, int height) {
+        return generate(pool, root, count, width, height, DungeonGenerator.Layout.CLASSIC);
+    }
+
+    public static DungeonGenerator[] generate(ExecutorService pool, long root, int count, int width, int height,
+                                              DungeonGenerator.Layout layout) {
+        List<Callable<DungeonGenerator>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long seed = SeedStreams.level(root, i);
+            tasks.add(() -> new DungeonGenerator(width, height, seed, layout));
+        }
+
+        DungeonGenerator[] levels = new DungeonGenerator[count];
+        try {
+            List<Future<DungeonGenerator>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < count; i++) {
+                levels[i] = results.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Dungeon batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Dungeon generation failed", e.getCause());
+        }
+        return levels;
+    }
+}
@@ -1,63 +1,278 @@
 package maps;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 public class DungeonGenerator {
     public static final int WIDTH = 100;
     public static final int HEIGHT = 60;
-    public static final int TILE_EMPTY = 0;
-    public static final int TILE_WALL = 1;
+    public static final int TILE_EMPTY = TileMap.EMPTY;
+    public static final int TILE_WALL = TileMap.WALL;
     public static final int TILE_SIZE = 16;
 
+    /**
+     * CLASSIC carves ten rooms chained in creation order. ROOM_GRAPH fills the
+     * whole map with non-overlapping rooms and joins them along a minimum
+     * spanning tree of their centres plus a few extra short corridors, which
+     * keeps corridors local and generation close to linear in the map area.
+     */
+    public enum Layout { CLASSIC, ROOM_GRAPH }
 
-    private final int[][] map;
+    private static final int TILES_PER_ROOM = 300;
+    private static final int PLACEMENT_ATTEMPTS = 4;
+    private static final int ROOM_PADDING = 2;
+    private static final int BUCKET_SIZE = 32;
+    private static final float EXTRA_EDGE_CHANCE = 0.08f;
+    private static final int ROOMS_PER_EXTRA_EDGE = 10;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final TileMap map;
     private final Random random;
     private final ArrayList<Room> rooms;
+    private RoomGraph roomGraph;
+    private WalkableIndex walkableIndex;
 
     public DungeonGenerator() {
-        map = new int[WIDTH][HEIGHT];
-        random = new Random();
+        this(WIDTH, HEIGHT);
+    }
+
+    public DungeonGenerator(long seed) {
+        this(WIDTH, HEIGHT, seed);
+    }
+
+    public DungeonGenerator(int width, int height) {
+        this(width, height, new Random().nextLong());
+    }
+
+    public DungeonGenerator(int width, int height, long seed) {
+        this(width, height, seed, Layout.CLASSIC);
+    }
+
+    /** The same root seed, size and layout always produce the same level. */
+    public DungeonGenerator(int width, int height, long seed, Layout layout) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        map = new TileMap(width, height);
+        random = new Random(SeedStreams.layout(seed));
         rooms = new ArrayList<>();
-        generate();
+        if (layout == Layout.ROOM_GRAPH) {
+            generateRoomGraph();
+        } else {
+            generate();
+        }
     }
 
-    public int[][] getMap() {
+    public TileMap getMap() {
         return map;
     }
 
+    /** Root seed of the level; spawns and AI derive their own streams from it. */
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
     private void generate() {
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                map[x][y] = TILE_WALL;
-            }
-        }
+        map.fill(TileMap.WALL);
 
         for (int i = 0; i < 10; i++) {
             int roomWidth = random.nextInt(15) + 3;
             int roomHeight = random.nextInt(15) + 3;
-            int roomX = random.nextInt(WIDTH - roomWidth - 1) + 1;
-            int roomY = random.nextInt(HEIGHT - roomHeight - 1) + 1;
+            int roomX = random.nextInt(width - roomWidth - 1) + 1;
+            int roomY = random.nextInt(height - roomHeight - 1) + 1;
 
             Room newRoom = new Room(roomX, roomY, roomWidth, roomHeight);
             rooms.add(newRoom);
 
-            for (int x = roomX; x < roomX + roomWidth; x++) {
-                for (int y = roomY; y < roomY + roomHeight; y++) {
-                    map[x][y] = TILE_EMPTY;
-                }
-            }
+            map.fillRect(roomX, roomY, roomWidth, roomHeight, TileMap.EMPTY);
         }
 
         connectRoomsWithCorridors();
     }
 
     private void connectRoomsWithCorridors() {
+        int[] edgeA = new int[Math.max(rooms.size() - 1, 0)];
+        int[] edgeB = new int[edgeA.length];
         for (int i = 1; i < rooms.size(); i++) {
             Room prev = rooms.get(i - 1);
             Room curr = rooms.get(i);
             connectRooms(prev, curr);
+            edgeA[i - 1] = i - 1;
+            edgeB[i - 1] = i;
+        }
+        roomGraph = new RoomGraph(rooms.size(), edgeA, edgeB, edgeA.length);
+    }
+
+    private void generateRoomGraph() {
+        map.fill(TileMap.WALL);
+
+        int bucketsX = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        int bucketsY = (height + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        int[] bucketHead = new int[bucketsX * bucketsY];
+        Arrays.fill(bucketHead, -1);
+        int target = Math.max(2, width * height / TILES_PER_ROOM);
+        int[] nextInBucket = new int[target];
+
+        // Rooms are bucketed by their corner. A room is at most BUCKET_SIZE
+        // tiles wide with padding, so only the 3x3 buckets around a candidate
+        // can hold a room it overlaps.
+        for (int attempt = 0; attempt < target * PLACEMENT_ATTEMPTS && rooms.size() < target; attempt++) {
+            int roomWidth = random.nextInt(15) + 3;
+            int roomHeight = random.nextInt(15) + 3;
+            if (roomWidth + 2 >= width || roomHeight + 2 >= height) continue;
+            int roomX = random.nextInt(width - roomWidth - 1) + 1;
+            int roomY = random.nextInt(height - roomHeight - 1) + 1;
+            int bx = roomX / BUCKET_SIZE;
+            int by = roomY / BUCKET_SIZE;
+            if (overlapsRoom(roomX, roomY, roomWidth, roomHeight, bx, by, bucketsX, bucketsY, bucketHead, nextInBucket)) {
+                continue;
+            }
+
+            int index = rooms.size();
+            rooms.add(new Room(roomX, roomY, roomWidth, roomHeight));
+            nextInBucket[index] = bucketHead[by * bucketsX + bx];
+            bucketHead[by * bucketsX + bx] = index;
+            map.fillRect(roomX, roomY, roomWidth, roomHeight, TileMap.EMPTY);
+        }
+
+        connectRoomGraph(bucketsX, bucketsY, bucketHead, nextInBucket);
+    }
+
+    private boolean overlapsRoom(int x, int y, int w, int h, int bx, int by, int bucketsX, int bucketsY,
+                                 int[] bucketHead, int[] nextInBucket) {
+        for (int cy = Math.max(by - 1, 0); cy <= Math.min(by + 1, bucketsY - 1); cy++) {
+            for (int cx = Math.max(bx - 1, 0); cx <= Math.min(bx + 1, bucketsX - 1); cx++) {
+                for (int i = bucketHead[cy * bucketsX + cx]; i != -1; i = nextInBucket[i]) {
+                    Room o = rooms.get(i);
+                    if (x - ROOM_PADDING < o.x + o.width && o.x - ROOM_PADDING < x + w
+                        && y - ROOM_PADDING < o.y + o.height && o.y - ROOM_PADDING < y + h) {
+                        return true;
+                    }
+                }
+            }
         }
+        return false;
+    }
+
+    /**
+     * Kruskal over candidate edges between rooms in neighbouring buckets,
+     * shortest (Manhattan between centres) first. A few of the edges that
+     * would close a loop are kept as well, one per ROOMS_PER_EXTRA_EDGE rooms
+     * at most. Components the candidate
+     * edges could not join are stitched together in bucket scan order.
+     */
+    private void connectRoomGraph(int bucketsX, int bucketsY, int[] bucketHead, int[] nextInBucket) {
+        int roomCount = rooms.size();
+        int[] candA = new int[roomCount * 4];
+        int[] candB = new int[candA.length];
+        int candidates = 0;
+        for (int a = 0; a < roomCount; a++) {
+            Room room = rooms.get(a);
+            int bx = room.x / BUCKET_SIZE;
+            int by = room.y / BUCKET_SIZE;
+            for (int cy = Math.max(by - 1, 0); cy <= Math.min(by + 1, bucketsY - 1); cy++) {
+                for (int cx = Math.max(bx - 1, 0); cx <= Math.min(bx + 1, bucketsX - 1); cx++) {
+                    for (int b = bucketHead[cy * bucketsX + cx]; b != -1; b = nextInBucket[b]) {
+                        if (b <= a) continue;
+                        if (candidates == candA.length) {
+                            candA = Arrays.copyOf(candA, candidates * 2);
+                            candB = Arrays.copyOf(candB, candidates * 2);
+                        }
+                        candA[candidates] = a;
+                        candB[candidates] = b;
+                        candidates++;
+                    }
+                }
+            }
+        }
+
+        long[] order = new long[candidates];
+        for (int e = 0; e < candidates; e++) {
+            order[e] = ((long) distance(candA[e], candB[e]) << 32) | e;
+        }
+        Arrays.sort(order);
+
+        int[] parent = new int[roomCount];
+        for (int i = 0; i < roomCount; i++) parent[i] = i;
+        int extraEdges = roomCount / ROOMS_PER_EXTRA_EDGE;
+        int[] edgeA = new int[roomCount + extraEdges];
+        int[] edgeB = new int[edgeA.length];
+        int edges = 0;
+
+        for (long key : order) {
+            int e = (int) key;
+            int a = candA[e];
+            int b = candB[e];
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA != rootB) {
+                parent[rootA] = rootB;
+            } else if (extraEdges == 0 || random.nextFloat() >= EXTRA_EDGE_CHANCE) {
+                continue;
+            } else {
+                extraEdges--;
+            }
+            edgeA[edges] = a;
+            edgeB[edges] = b;
+            edges++;
+        }
+
+        // Serpentine bucket order keeps consecutive rooms close together.
+        int prev = -1;
+        for (int by = 0; by < bucketsY; by++) {
+            for (int k = 0; k < bucketsX; k++) {
+                int bx = (by & 1) == 0 ? k : bucketsX - 1 - k;
+                for (int i = bucketHead[by * bucketsX + bx]; i != -1; i = nextInBucket[i]) {
+                    if (prev != -1) {
+                        int rootA = find(parent, prev);
+                        int rootB = find(parent, i);
+                        if (rootA != rootB) {
+                            parent[rootA] = rootB;
+                            if (edges == edgeA.length) {
+                                edgeA = Arrays.copyOf(edgeA, edges * 2);
+                                edgeB = Arrays.copyOf(edgeB, edges * 2);
+                            }
+                            edgeA[edges] = prev;
+                            edgeB[edges] = i;
+                            edges++;
+                        }
+                    }
+                    prev = i;
+                }
+            }
+        }
+
+        for (int e = 0; e < edges; e++) {
+            connectRooms(rooms.get(edgeA[e]), rooms.get(edgeB[e]));
+        }
+        roomGraph = new RoomGraph(roomCount, edgeA, edgeB, edges);
+    }
+
+    private int distance(int a, int b) {
+        Room ra = rooms.get(a);
+        Room rb = rooms.get(b);
+        return Math.abs(ra.centerX() - rb.centerX()) + Math.abs(ra.centerY() - rb.centerY());
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
     }
 
     private void connectRooms(Room a, Room b) {
@@ -77,14 +292,7 @@ public class DungeonGenerator {
         int max = Math.max(x1, x2);
         int halfWidth = tunnelWidth / 2;
 
-        for (int x = min; x < max; x++) {
-            for (int offset = -halfWidth; offset <= halfWidth; offset++) {
-                int y = yCenter + offset;
-                if (y >= 0 && y < HEIGHT) {
-                    map[x][y] = TILE_EMPTY;
-                }
-            }
-        }
+        map.fillRect(min, yCenter - halfWidth, max - min, halfWidth * 2 + 1, TileMap.EMPTY);
     }
 
     private void createVTunnel(int y1, int y2, int xCenter) {
@@ -92,14 +300,22 @@ public class DungeonGenerator {
         int max = Math.max(y1, y2);
         int halfWidth = tunnelWidth / 2;
 
-        for (int y = min; y < max; y++) {
-            for (int offset = -halfWidth; offset <= halfWidth; offset++) {
-                int x = xCenter + offset;
-                if (x >= 0 && x < WIDTH) {
-                    map[x][y] = TILE_EMPTY;
-                }
-            }
-        }
+        map.fillRect(xCenter - halfWidth, min, halfWidth * 2 + 1, max - min, TileMap.EMPTY);
+    }
+
+    public List<Room> getRooms() {
+        return Collections.unmodifiableList(rooms);
+    }
+
+    /** Corridors between the rooms of {@link #getRooms()}, by room index. */
+    public RoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    /** Walkable tiles of the whole level by room, built on first use. */
+    public WalkableIndex getWalkableIndex() {
+        if (walkableIndex == null) walkableIndex = WalkableIndex.build(map, rooms, 0, 0, width, height);
+        return walkableIndex;
     }
 
     public Room getLastRoom() {
@@ -0,0 +1,143 @@
+package maps;
+
+import java.util.Arrays;
+
+/**
+ * Tiles visible from the player's tile, found with symmetric shadowcasting
+ * and limited to a circle of RADIUS tiles. Walls are visible but block sight.
+ * The set is recomputed only when the player enters a new tile; in between,
+ * {@link #isVisible} is an array lookup that any number of threads can make.
+ *
+ * Visibility is symmetric: if a tile is visible from the origin, the origin
+ * is visible from that tile, so the same set also answers whether an enemy
+ * standing on a tile can see the player.
+ */
+public class FieldOfView {
+    public static final int RADIUS = 7;
+
+    private static final int SIDE = 2 * RADIUS + 1;
+    private static final int RADIUS_SQ = RADIUS * RADIUS + RADIUS;
+
+    private final boolean[] visible = new boolean[SIDE * SIDE];
+    private final int[] visibleTiles = new int[SIDE * SIDE];
+    private int visibleCount;
+
+    private int originX = Integer.MIN_VALUE;
+    private int originY = Integer.MIN_VALUE;
+    private TileSource map;
+    private int quadrant;
+
+    /** Recomputes the visible set from (x, y); does nothing if that is already the origin. */
+    public boolean update(int x, int y, TileSource map) {
+        if (x == originX && y == originY) return false;
+        originX = x;
+        originY = y;
+        this.map = map;
+        Arrays.fill(visible, false);
+        visibleCount = 0;
+
+        mark(x, y);
+        for (quadrant = 0; quadrant < 4; quadrant++) {
+            scan(1, -1, 1, 1, 1);
+        }
+        this.map = null;
+        return true;
+    }
+
+    /** Forgets the origin so the next update recomputes even on the same tile. */
+    public void invalidate() {
+        originX = Integer.MIN_VALUE;
+        originY = Integer.MIN_VALUE;
+    }
+
+    public boolean isVisible(int x, int y) {
+        int lx = x - originX + RADIUS;
+        int ly = y - originY + RADIUS;
+        if (lx < 0 || ly < 0 || lx >= SIDE || ly >= SIDE) return false;
+        return visible[ly * SIDE + lx];
+    }
+
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    public int getVisibleX(int i) {
+        return originX - RADIUS + visibleTiles[i] % SIDE;
+    }
+
+    public int getVisibleY(int i) {
+        return originY - RADIUS + visibleTiles[i] / SIDE;
+    }
+
+    /**
+     * Scans one row of the current quadrant between the start and end slopes
+     * (as fractions), then recurses into the rows behind each gap. Row depth
+     * is at most RADIUS, which bounds the recursion.
+     */
+    private void scan(int depth, int startNum, int startDen, int endNum, int endDen) {
+        if (depth > RADIUS) return;
+        // Columns whose centre lies within the slopes, rounding ties outwards.
+        int minCol = floorDiv(2L * depth * startNum + startDen, 2L * startDen);
+        int maxCol = ceilDiv(2L * depth * endNum - endDen, 2L * endDen);
+
+        boolean prevWall = false;
+        boolean first = true;
+        for (int col = minCol; col <= maxCol; col++) {
+            int tx = tileX(depth, col);
+            int ty = tileY(depth, col);
+            boolean wall = !map.isWalkable(tx, ty);
+            boolean inRange = col * col + depth * depth <= RADIUS_SQ;
+
+            if (inRange && (wall || isSymmetric(depth, col, startNum, startDen, endNum, endDen))) {
+                mark(tx, ty);
+            }
+            if (!first && prevWall && !wall) {
+                startNum = 2 * col - 1;
+                startDen = 2 * depth;
+            }
+            if (!first && !prevWall && wall) {
+                scan(depth + 1, startNum, startDen, 2 * col - 1, 2 * depth);
+            }
+            prevWall = wall;
+            first = false;
+        }
+        if (!first && !prevWall) {
+            scan(depth + 1, startNum, startDen, endNum, endDen);
+        }
+    }
+
+    private static boolean isSymmetric(int depth, int col, int startNum, int startDen, int endNum, int endDen) {
+        return (long) col * startDen >= (long) depth * startNum && (long) col * endDen <= (long) depth * endNum;
+    }
+
+    private int tileX(int depth, int col) {
+        switch (quadrant) {
+            case 0: case 1: return originX + col;
+            case 2: return originX + depth;
+            default: return originX - depth;
+        }
+    }
+
+    private int tileY(int depth, int col) {
+        switch (quadrant) {
+            case 0: return originY + depth;
+            case 1: return originY - depth;
+            default: return originY + col;
+        }
+    }
+
+    private void mark(int x, int y) {
+        int i = (y - originY + RADIUS) * SIDE + (x - originX + RADIUS);
+        if (visible[i]) return;
+        visible[i] = true;
+        visibleTiles[visibleCount++] = i;
+    }
+
+    private static int floorDiv(long a, long b) {
+        return (int) Math.floorDiv(a, b);
+    }
+
+    private static int ceilDiv(long a, long b) {
+        return (int) -Math.floorDiv(-a, b);
+    }
+}
@@ -0,0 +1,102 @@
+package maps;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first distance map spreading out from the player's tile over
+ * walkable tiles, up to RADIUS steps. It is rebuilt only when the player
+ * enters a new tile, and every enemy reads its next step from it in O(1)
+ * instead of searching for its own path.
+ *
+ * The field only covers the square window RADIUS tiles around the target,
+ * so a rebuild costs the same on any map size.
+ */
+public class FlowField {
+    public static final int RADIUS = 24;
+    public static final int NONE = -1;
+
+    private static final int SIDE = 2 * RADIUS + 1;
+    // Ordered so that dir ^ 1 is the opposite direction.
+    private static final int[] DX = {1, -1, 0, 0, 1, -1, 1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, -1, 1};
+
+    private final byte[] step = new byte[SIDE * SIDE];
+    private final short[] distance = new short[SIDE * SIDE];
+    private final int[] queue = new int[SIDE * SIDE];
+
+    private int targetX = Integer.MIN_VALUE;
+    private int targetY = Integer.MIN_VALUE;
+    private int originX, originY;
+
+    /** Rebuilds the field around (x, y); does nothing if that is already the target. */
+    public boolean update(int x, int y, TileSource map) {
+        if (x == targetX && y == targetY) return false;
+        targetX = x;
+        targetY = y;
+        originX = x - RADIUS;
+        originY = y - RADIUS;
+        Arrays.fill(distance, (short) -1);
+        if (!map.isWalkable(x, y)) return true;
+
+        int head = 0, tail = 0;
+        int start = RADIUS * SIDE + RADIUS;
+        step[start] = NONE;
+        distance[start] = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int local = queue[head++];
+            int lx = local % SIDE;
+            int ly = local / SIDE;
+            int tx = originX + lx;
+            int ty = originY + ly;
+            short next = (short) (distance[local] + 1);
+
+            for (int dir = 0; dir < 8; dir++) {
+                int nlx = lx + DX[dir];
+                int nly = ly + DY[dir];
+                if (nlx < 0 || nly < 0 || nlx >= SIDE || nly >= SIDE) continue;
+                int n = nly * SIDE + nlx;
+                if (distance[n] >= 0 || !map.isWalkable(tx + DX[dir], ty + DY[dir])) continue;
+                // No cutting corners: a diagonal step needs both side tiles open.
+                if (dir >= 4 && (!map.isWalkable(tx + DX[dir], ty) || !map.isWalkable(tx, ty + DY[dir]))) continue;
+
+                distance[n] = next;
+                step[n] = (byte) (dir ^ 1);
+                queue[tail++] = n;
+            }
+        }
+        return true;
+    }
+
+    private int localIndex(int x, int y) {
+        int lx = x - originX;
+        int ly = y - originY;
+        if (lx < 0 || ly < 0 || lx >= SIDE || ly >= SIDE) return -1;
+        int i = ly * SIDE + lx;
+        return distance[i] >= 0 ? i : -1;
+    }
+
+    public boolean reaches(int x, int y) {
+        return localIndex(x, y) >= 0;
+    }
+
+    /** Direction index of the next step from (x, y) towards the target, or NONE. */
+    public int stepFrom(int x, int y) {
+        int i = localIndex(x, y);
+        return i < 0 ? NONE : step[i];
+    }
+
+    public int distanceFrom(int x, int y) {
+        int i = localIndex(x, y);
+        return i < 0 ? Integer.MAX_VALUE : distance[i];
+    }
+
+    public static int stepX(int dir) {
+        return DX[dir];
+    }
+
+    public static int stepY(int dir) {
+        return DY[dir];
+    }
+}
@@ -0,0 +1,63 @@
+package maps;
+
+/**
+ * Which rooms of a level are joined by a corridor. Rooms are referred to by
+ * their index in {@link DungeonGenerator#getRooms()}; edges are undirected
+ * and neighbours are stored in one flat array per graph.
+ */
+public class RoomGraph {
+    private final int roomCount;
+    private final int edgeCount;
+    private final int[] edgeA;
+    private final int[] edgeB;
+    private final int[] offsets;
+    private final int[] neighbours;
+
+    RoomGraph(int roomCount, int[] edgeA, int[] edgeB, int edgeCount) {
+        this.roomCount = roomCount;
+        this.edgeCount = edgeCount;
+        this.edgeA = edgeA;
+        this.edgeB = edgeB;
+
+        offsets = new int[roomCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[edgeA[e] + 1]++;
+            offsets[edgeB[e] + 1]++;
+        }
+        for (int i = 0; i < roomCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        neighbours = new int[edgeCount * 2];
+        int[] fill = new int[roomCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int a = edgeA[e];
+            int b = edgeB[e];
+            neighbours[offsets[a] + fill[a]++] = b;
+            neighbours[offsets[b] + fill[b]++] = a;
+        }
+    }
+
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public int getEdgeA(int edge) {
+        return edgeA[edge];
+    }
+
+    public int getEdgeB(int edge) {
+        return edgeB[edge];
+    }
+
+    public int getDegree(int room) {
+        return offsets[room + 1] - offsets[room];
+    }
+
+    public int getNeighbour(int room, int k) {
+        return neighbours[offsets[room] + k];
+    }
+}
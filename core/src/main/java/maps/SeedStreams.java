@@ -0,0 +1,42 @@
+package maps;
+
+/**
+ * Derives independent seeds from one root seed, so a level is fully
+ * described by that root: changing how many numbers one stream draws (say,
+ * spawning more enemies) never shifts the numbers another stream sees.
+ */
+public final class SeedStreams {
+    public static final int LAYOUT = 1;
+    public static final int SPAWN = 2;
+    public static final int AI = 3;
+
+    private SeedStreams() {}
+
+    public static long layout(long root) {
+        return stream(root, LAYOUT);
+    }
+
+    public static long spawn(long root) {
+        return stream(root, SPAWN);
+    }
+
+    public static long ai(long root) {
+        return stream(root, AI);
+    }
+
+    /** Root seed of level {@code index} in a set of levels generated from {@code root}. */
+    public static long level(long root, int index) {
+        return mix(root ^ mix(0x6C8E9CF570932BD5L + index));
+    }
+
+    public static long stream(long root, int stream) {
+        return mix(root + stream * 0x9E3779B97F4A7C15L);
+    }
+
+    /** SplitMix64 finaliser. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
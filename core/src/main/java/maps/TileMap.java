@@ -0,0 +1,77 @@
+package maps;
+
+import java.util.Arrays;
+
+/**
+ * Tile layer stored as one flat byte per tile in row-major order
+ * (index = y * width + x), so a row is contiguous in memory.
+ */
+public final class TileMap implements TileSource {
+    public static final byte EMPTY = 0;
+    public static final byte WALL = 1;
+
+    private final int width;
+    private final int height;
+    private final byte[] tiles;
+
+    public TileMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tiles = new byte[width * height];
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public byte get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return WALL;
+        return tiles[y * width + x];
+    }
+
+    public void set(int x, int y, byte tile) {
+        tiles[y * width + x] = tile;
+    }
+
+    /** Out-of-bounds tiles count as solid. */
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && tiles[y * width + x] == EMPTY;
+    }
+
+    public void fill(byte tile) {
+        Arrays.fill(tiles, tile);
+    }
+
+    /** Fills a rectangle, clipped to the map bounds. */
+    public void fillRect(int x, int y, int w, int h, byte tile) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + w, width);
+        int y1 = Math.min(y + h, height);
+        if (x0 >= x1) return;
+        for (int row = y0; row < y1; row++) {
+            int start = row * width;
+            Arrays.fill(tiles, start + x0, start + x1, tile);
+        }
+    }
+
+    public byte[] getTiles() {
+        return tiles;
+    }
+}
@@ -0,0 +1,26 @@
+package maps;
+
+/**
+ * Read access to a tile layer, either a whole level held in memory
+ * ({@link TileMap}) or one streamed in chunks ({@link ChunkedDungeon}).
+ */
+public interface TileSource {
+    int getWidth();
+
+    int getHeight();
+
+    /** Tile at (x, y); tiles outside the map or not resident read as {@link TileMap#WALL}. */
+    byte get(int x, int y);
+
+    boolean isWalkable(int x, int y);
+
+    default boolean isWalkableAt(float worldX, float worldY) {
+        if (worldX < 0 || worldY < 0) return false;
+        return isWalkable((int) (worldX / DungeonGenerator.TILE_SIZE), (int) (worldY / DungeonGenerator.TILE_SIZE));
+    }
+
+    /** Called whenever the player enters a new tile; streamed sources load around it. */
+    default void focus(int tileX, int tileY) {}
+
+    default void dispose() {}
+}
@@ -0,0 +1,161 @@
+package maps;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The walkable tiles of an area of a level, grouped by the room they lie in,
+ * so a random free tile is a single array read instead of rejection sampling
+ * over the whole map. Tiles of room k occupy one contiguous run of a flat
+ * array; walkable tiles outside every room (corridors) form a last run.
+ * Tiles are packed as {@code y * mapWidth + x}.
+ */
+public class WalkableIndex {
+    private static final int RANDOM_TRIES = 8;
+
+    private final int mapWidth;
+    private final int areaX, areaY, areaW, areaH;
+    private final int roomCount;
+    private final int[] tiles;
+    private final int[] offsets;
+    private final int[] roomOf;
+
+    private WalkableIndex(int mapWidth, int areaX, int areaY, int areaW, int areaH,
+                          int roomCount, int[] tiles, int[] offsets, int[] roomOf) {
+        this.mapWidth = mapWidth;
+        this.areaX = areaX;
+        this.areaY = areaY;
+        this.areaW = areaW;
+        this.areaH = areaH;
+        this.roomCount = roomCount;
+        this.tiles = tiles;
+        this.offsets = offsets;
+        this.roomOf = roomOf;
+    }
+
+    /**
+     * Indexes the walkable tiles of the given area. Rooms are in map tile
+     * coordinates; a tile inside several rooms belongs to the first.
+     */
+    public static WalkableIndex build(TileSource map, List<Room> rooms, int areaX, int areaY, int areaW, int areaH) {
+        int roomCount = rooms.size();
+        int[] roomOf = new int[areaW * areaH];
+        Arrays.fill(roomOf, -1);
+        int[] offsets = new int[roomCount + 2];
+
+        for (int k = 0; k < roomCount; k++) {
+            Room room = rooms.get(k);
+            int minX = Math.max(room.x, areaX);
+            int minY = Math.max(room.y, areaY);
+            int maxX = Math.min(room.x + room.width, areaX + areaW);
+            int maxY = Math.min(room.y + room.height, areaY + areaH);
+            for (int y = minY; y < maxY; y++) {
+                for (int x = minX; x < maxX; x++) {
+                    int local = (y - areaY) * areaW + (x - areaX);
+                    if (roomOf[local] < 0 && map.isWalkable(x, y)) roomOf[local] = k;
+                }
+            }
+        }
+
+        for (int y = 0; y < areaH; y++) {
+            for (int x = 0; x < areaW; x++) {
+                int room = roomOf[y * areaW + x];
+                if (room >= 0) {
+                    offsets[room + 1]++;
+                } else if (map.isWalkable(areaX + x, areaY + y)) {
+                    offsets[roomCount + 1]++;
+                }
+            }
+        }
+        for (int g = 0; g <= roomCount; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+
+        int[] tiles = new int[offsets[roomCount + 1]];
+        int[] fill = Arrays.copyOf(offsets, roomCount + 1);
+        int mapWidth = map.getWidth();
+        for (int y = 0; y < areaH; y++) {
+            for (int x = 0; x < areaW; x++) {
+                int room = roomOf[y * areaW + x];
+                if (room < 0 && !map.isWalkable(areaX + x, areaY + y)) continue;
+                int group = room >= 0 ? room : roomCount;
+                tiles[fill[group]++] = (areaY + y) * mapWidth + areaX + x;
+            }
+        }
+        return new WalkableIndex(mapWidth, areaX, areaY, areaW, areaH, roomCount, tiles, offsets, roomOf);
+    }
+
+    /** Walkable tiles in the area, rooms and corridors together. */
+    public int size() {
+        return tiles.length;
+    }
+
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    public int getRoomSize(int room) {
+        return offsets[room + 1] - offsets[room];
+    }
+
+    /** Room of a tile, or -1 for corridors, walls and tiles outside the area. */
+    public int roomOf(int x, int y) {
+        if (x < areaX || y < areaY || x >= areaX + areaW || y >= areaY + areaH) return -1;
+        return roomOf[(y - areaY) * areaW + (x - areaX)];
+    }
+
+    public int tileX(int tile) {
+        return tile % mapWidth;
+    }
+
+    public int tileY(int tile) {
+        return tile / mapWidth;
+    }
+
+    /** A uniformly random walkable tile, or -1 if there is none. */
+    public int randomTile(Random random) {
+        return tiles.length == 0 ? -1 : tiles[random.nextInt(tiles.length)];
+    }
+
+    /** A uniformly random walkable tile of the room, or -1 if it has none. */
+    public int randomTileInRoom(int room, Random random) {
+        return pick(offsets[room], offsets[room + 1], random, 0, 0, 0);
+    }
+
+    /**
+     * A random walkable tile at least minDistance tiles from (fromX, fromY),
+     * in the given room or anywhere for room -1; -1 if there is none.
+     */
+    public int randomTileAwayFrom(int room, Random random, int fromX, int fromY, int minDistance) {
+        if (room < 0) return pick(0, tiles.length, random, fromX, fromY, minDistance);
+        return pick(offsets[room], offsets[room + 1], random, fromX, fromY, minDistance);
+    }
+
+    /**
+     * A few random draws first; if they all land too close, a scan from a
+     * random start finds the next tile far enough away, so an unsatisfiable
+     * request costs one pass over the run instead of spinning.
+     */
+    private int pick(int from, int to, Random random, int fromX, int fromY, int minDistance) {
+        int n = to - from;
+        if (n <= 0) return -1;
+        long minSq = (long) minDistance * minDistance;
+        for (int attempt = 0; attempt < RANDOM_TRIES; attempt++) {
+            int tile = tiles[from + random.nextInt(n)];
+            if (farEnough(tile, fromX, fromY, minSq)) return tile;
+        }
+        int start = random.nextInt(n);
+        for (int k = 0; k < n; k++) {
+            int tile = tiles[from + (start + k) % n];
+            if (farEnough(tile, fromX, fromY, minSq)) return tile;
+        }
+        return -1;
+    }
+
+    private boolean farEnough(int tile, int fromX, int fromY, long minSq) {
+        long dx = tileX(tile) - fromX;
+        long dy = tileY(tile) - fromY;
+        return dx * dx + dy * dy >= minSq;
+    }
+}
@@ -0,0 +1,178 @@
+package net;
+
+import world.PlayerInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One player's end of a {@link CoopServer} connection, on a non-blocking
+ * UDP socket. Call {@link #join} until {@link #isJoined()}, then every
+ * tick {@link #sendInput} and {@link #poll}; {@link #getState()} is the
+ * newest snapshot received. Every input acknowledges that snapshot, so
+ * the server deltas the next one against it.
+ *
+ * The map is not sent: it follows from {@link #getRunSeed()} and the
+ * floor, the same way the server generates it. Neither is the fog of war.
+ * A client that draws it keeps its own {@link world.FogOfWar} and, for
+ * every snapshot, updates a {@link maps.FieldOfView} per player at that
+ * player's center tile and reveals it, as {@link world.World#updateExplored}
+ * does on the server. Tiles a player saw only in snapshots the client
+ * lost stay unexplored there; nothing the server decides depends on the
+ * client's fog, and the portal is sent once found.
+ */
+public class CoopClient implements Closeable {
+    private final DatagramChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_PACKET_BYTES);
+    private final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_PACKET_BYTES);
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final NetState[] history = new NetState[CoopServer.HISTORY];
+    private NetState latest;
+    private int slot = -1;
+    private long runSeed;
+    private boolean rejected;
+    private int inputSeq;
+    private int attacks;
+
+    private long bytesReceived;
+    private long snapshotsReceived;
+
+    public CoopClient(SocketAddress server) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(server);
+        for (int k = 0; k < history.length; k++) history[k] = new NetState();
+    }
+
+    /**
+     * Asks for a slot as the named class; repeat until joined, since either
+     * datagram may be lost. Starts over from no snapshots, so it is also
+     * how to come back after the server timed this client out.
+     */
+    public void join(String playerClass) throws IOException {
+        slot = -1;
+        rejected = false;
+        latest = null;
+        for (NetState state : history) state.invalidate();
+        byte[] name = playerClass.getBytes(StandardCharsets.UTF_8);
+        if (name.length > Protocol.MAX_CLASS_NAME_BYTES) throw new IllegalArgumentException("Class name too long: " + playerClass);
+        out.clear();
+        Protocol.putHeader(out, Protocol.HELLO);
+        out.put((byte) name.length);
+        out.put(name);
+        send();
+    }
+
+    /** Sends this tick's input; a new attack press is counted, so it survives lost packets. */
+    public void sendInput(PlayerInput input) throws IOException {
+        if (input.attack) attacks++;
+        out.clear();
+        Protocol.putHeader(out, Protocol.INPUT);
+        out.putInt(latest == null ? -1 : latest.seq);
+        out.putInt(inputSeq++);
+        out.put((byte) (input.toBits() & ~PlayerInput.ATTACK));
+        out.put((byte) attacks);
+        send();
+    }
+
+    public void leave() throws IOException {
+        out.clear();
+        Protocol.putHeader(out, Protocol.BYE);
+        send();
+        slot = -1;
+    }
+
+    /**
+     * Reads every datagram waiting. Returns how many of them were
+     * snapshots newer than the latest; older ones, and ones whose baseline
+     * is no longer kept, are dropped.
+     */
+    public int poll() throws IOException {
+        int applied = 0;
+        while (true) {
+            in.clear();
+            SocketAddress from;
+            try {
+                from = channel.receive(in);
+            } catch (PortUnreachableException e) {
+                // Nobody listening yet; the next HELLO tries again.
+                continue;
+            }
+            if (from == null) return applied;
+            in.flip();
+            bytesReceived += in.remaining();
+            try {
+                if (handle(in)) applied++;
+            } catch (BufferUnderflowException | IOException e) {
+                // Dropped like a lost datagram.
+            }
+        }
+    }
+
+    private boolean handle(ByteBuffer packet) throws IOException {
+        byte type = Protocol.getHeader(packet);
+        if (type == Protocol.WELCOME) {
+            slot = packet.get();
+            runSeed = packet.getLong();
+            rejected = false;
+        } else if (type == Protocol.FULL) {
+            rejected = slot < 0;
+        } else if (type == Protocol.SNAPSHOT && slot >= 0) {
+            return snapshot(packet);
+        }
+        return false;
+    }
+
+    private boolean snapshot(ByteBuffer packet) throws IOException {
+        int seq = SnapshotCodec.peekSeq(packet);
+        int baselineSeq = SnapshotCodec.peekBaselineSeq(packet);
+        if (seq < 0 || latest != null && seq <= latest.seq) return false;
+        NetState baseline = null;
+        if (baselineSeq >= 0) {
+            baseline = history[baselineSeq % history.length];
+            if (baseline.seq != baselineSeq) return false;
+        }
+        NetState state = history[seq % history.length];
+        if (state == baseline) return false;
+        try {
+            codec.read(packet, baseline, state);
+        } catch (IOException | BufferUnderflowException e) {
+            state.invalidate();
+            throw e;
+        }
+        latest = state;
+        snapshotsReceived++;
+        return true;
+    }
+
+    private void send() throws IOException {
+        out.flip();
+        try {
+            channel.write(out);
+        } catch (PortUnreachableException e) {
+            // The server is not up yet or went away; callers keep sending.
+        }
+    }
+
+    public boolean isJoined() { return slot >= 0; }
+    /** True once the server said every slot is taken. */
+    public boolean isRejected() { return rejected; }
+    /** Index of this client's player in the snapshots. */
+    public int getSlot() { return slot; }
+    public long getRunSeed() { return runSeed; }
+    /** The newest snapshot, or null before the first. Overwritten by later polls. */
+    public NetState getState() { return latest; }
+    public long getBytesReceived() { return bytesReceived; }
+    public long getSnapshotsReceived() { return snapshotsReceived; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,347 @@
+package net;
+
+import entities.MainCharacterTypes.PlayerClass;
+import maps.DungeonGenerator;
+import maps.SeedStreams;
+import world.PlayerInput;
+import world.World;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Authoritative co-op host: runs the level for up to {@link World#MAX_PLAYERS}
+ * clients over one non-blocking UDP socket. Each {@link #tick()} reads
+ * every datagram waiting, steps the world once with the latest input of
+ * each player, and sends each client a snapshot delta-encoded against the
+ * last one it acknowledged (see {@link SnapshotCodec}).
+ *
+ * The first client to join picks the class of player one and starts the
+ * run. A slot whose client goes quiet for TIMEOUT_TICKS is freed; its
+ * player stays in the level, standing still, for whoever joins next.
+ * Reaching the portal moves everyone to the next floor; when all players
+ * are dead the floor starts over. Co-op runs on classic dungeons only.
+ */
+public class CoopServer implements Closeable {
+    private static final long TICK_NANOS = (long) (World.TICK * 1e9);
+    private static final long MAX_CATCH_UP_NANOS = 250_000_000L;
+    /** Snapshots kept per client to delta against; an acknowledgement older than this gets a full snapshot. */
+    static final int HISTORY = 64;
+    static final int TIMEOUT_TICKS = 10 * 60;
+
+    private final DatagramChannel channel;
+    private final long runSeed;
+    private final int enemyCount;
+    private final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_PACKET_BYTES);
+    private final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_PACKET_BYTES);
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final Slot[] slots = new Slot[World.MAX_PLAYERS];
+    private final PlayerInput[] inputs = new PlayerInput[World.MAX_PLAYERS];
+    private World world;
+    private int floor = 1;
+    /** Ticks stepped over all floors; what client timeouts are measured in. */
+    private long ticks;
+    private volatile boolean running;
+
+    private long bytesSent;
+    private long bytesReceived;
+    private long snapshotsSent;
+    private long fullSnapshotsSent;
+
+    /** One client's seat: its address, input, and the snapshots it may acknowledge. */
+    private static final class Slot {
+        SocketAddress address;
+        PlayerClass playerClass;
+        final PlayerInput input = new PlayerInput();
+        int inputSeq = -1;
+        int attacks;
+        int nextSeq;
+        int ackSeq = -1;
+        long lastHeardTick;
+        final NetState[] history = new NetState[HISTORY];
+
+        Slot() {
+            for (int k = 0; k < HISTORY; k++) history[k] = new NetState();
+        }
+
+        boolean isConnected() {
+            return address != null;
+        }
+
+        /** The acknowledged snapshot to delta against, or null to send a full one. */
+        NetState baseline() {
+            if (ackSeq < 0 || nextSeq - ackSeq >= HISTORY) return null;
+            NetState state = history[ackSeq % HISTORY];
+            return state.seq == ackSeq ? state : null;
+        }
+
+        void forgetHistory() {
+            for (NetState state : history) state.invalidate();
+            ackSeq = -1;
+        }
+    }
+
+    /** Listens on the given port (0 for any free one); floors are generated from runSeed with enemyCount enemies. */
+    public CoopServer(int port, long runSeed, int enemyCount) throws IOException {
+        this.runSeed = runSeed;
+        this.enemyCount = enemyCount;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+        for (int s = 0; s < slots.length; s++) {
+            slots[s] = new Slot();
+            inputs[s] = slots[s].input;
+        }
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Runs {@link #tick()} at the fixed {@link World#TICK} rate on the
+     * calling thread until {@link #close()}.
+     */
+    public void run() throws IOException {
+        running = true;
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                if (now - next > MAX_CATCH_UP_NANOS) next = now;
+                tick();
+                next += TICK_NANOS;
+            }
+        } catch (ClosedChannelException e) {
+            if (running) throw e;
+        }
+    }
+
+    /** Reads what clients sent, steps the level if anyone is connected, and sends snapshots. */
+    public void tick() throws IOException {
+        receive();
+        if (world == null || connectedCount() == 0) return;
+
+        if (world.getOutcome() != World.Outcome.RUNNING) nextFloor();
+        world.step(inputs);
+        ticks++;
+        for (Slot slot : slots) {
+            // Attacks fire once per press; directions stay held until the next input says otherwise.
+            slot.input.attack = false;
+        }
+        dropSilentClients();
+        sendSnapshots();
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            in.clear();
+            SocketAddress from = channel.receive(in);
+            if (from == null) return;
+            in.flip();
+            bytesReceived += in.remaining();
+            try {
+                handle(from, in);
+            } catch (BufferUnderflowException | IOException e) {
+                // Truncated or corrupt datagram: dropped like a lost one.
+            }
+        }
+    }
+
+    private void handle(SocketAddress from, ByteBuffer packet) throws IOException {
+        byte type = Protocol.getHeader(packet);
+        Slot slot = slotOf(from);
+        if (type == Protocol.HELLO) {
+            hello(from, slot, packet);
+        } else if (slot == null) {
+            return;
+        } else if (type == Protocol.INPUT) {
+            input(slot, packet);
+        } else if (type == Protocol.BYE) {
+            disconnect(slot);
+        }
+    }
+
+    private void hello(SocketAddress from, Slot slot, ByteBuffer packet) throws IOException {
+        if (slot == null) {
+            int length = packet.get() & 0xFF;
+            if (length > Protocol.MAX_CLASS_NAME_BYTES) return;
+            byte[] name = new byte[length];
+            packet.get(name);
+            PlayerClass playerClass;
+            try {
+                playerClass = PlayerClass.forName(new String(name, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            slot = join(from, playerClass);
+            if (slot == null) {
+                reply(from, Protocol.FULL);
+                return;
+            }
+        } else {
+            // A client joining again has thrown its snapshots away.
+            slot.forgetHistory();
+        }
+        slot.lastHeardTick = ticks;
+        out.clear();
+        Protocol.putHeader(out, Protocol.WELCOME);
+        out.put((byte) indexOf(slot));
+        out.putLong(runSeed);
+        out.flip();
+        send(out, from);
+    }
+
+    /** Seats a new client in the first free slot, adding its player to the level if the slot never had one. */
+    private Slot join(SocketAddress from, PlayerClass playerClass) {
+        for (int s = 0; s < slots.length; s++) {
+            Slot slot = slots[s];
+            if (slot.isConnected()) continue;
+            if (world == null) {
+                slot.playerClass = playerClass;
+                world = createFloor(null);
+            } else if (s >= world.getPlayerCount()) {
+                slot.playerClass = playerClass;
+                world.addPlayer(playerClass);
+            }
+            slot.address = from;
+            slot.input.clear();
+            slot.inputSeq = -1;
+            slot.attacks = -1;
+            slot.nextSeq = 0;
+            slot.forgetHistory();
+            return slot;
+        }
+        return null;
+    }
+
+    private void input(Slot slot, ByteBuffer packet) {
+        int ack = packet.getInt();
+        int inputSeq = packet.getInt();
+        int bits = packet.get();
+        int attacks = packet.get() & 0xFF;
+        slot.lastHeardTick = ticks;
+
+        if (ack > slot.ackSeq && ack < slot.nextSeq && slot.history[ack % HISTORY].seq == ack) slot.ackSeq = ack;
+        if (inputSeq <= slot.inputSeq) return;
+        slot.inputSeq = inputSeq;
+        boolean attack = slot.input.attack;
+        slot.input.setBits(bits & ~PlayerInput.ATTACK);
+        // The first input only sets the count; later, any change means a press.
+        slot.input.attack = attack || (slot.attacks >= 0 && attacks != slot.attacks);
+        slot.attacks = attacks;
+    }
+
+    private void dropSilentClients() {
+        for (Slot slot : slots) {
+            if (slot.isConnected() && ticks - slot.lastHeardTick > TIMEOUT_TICKS) disconnect(slot);
+        }
+    }
+
+    private void disconnect(Slot slot) {
+        slot.address = null;
+        slot.input.clear();
+        slot.forgetHistory();
+    }
+
+    private void sendSnapshots() throws IOException {
+        for (int s = 0; s < slots.length; s++) {
+            Slot slot = slots[s];
+            if (!slot.isConnected()) continue;
+            NetState baseline = slot.baseline();
+            int seq = slot.nextSeq++;
+            out.clear();
+            codec.write(world, floor, s, seq, baseline, slot.history[seq % HISTORY], out);
+            out.flip();
+            send(out, slot.address);
+            snapshotsSent++;
+            if (baseline == null) fullSnapshotsSent++;
+        }
+    }
+
+    /**
+     * Replaces the finished level: the next floor after the portal, or the
+     * same floor again once everyone died. Baselines from the old level
+     * mean nothing in the new one, so every client gets a full snapshot.
+     */
+    private void nextFloor() {
+        World finished = world;
+        boolean completed = finished.getOutcome() == World.Outcome.LEVEL_COMPLETED;
+        if (completed) floor++;
+        world = createFloor(completed ? finished : null);
+        finished.dispose();
+        for (Slot slot : slots) slot.forgetHistory();
+    }
+
+    private World createFloor(World previous) {
+        World created = new World(slots[0].playerClass, new DungeonGenerator(SeedStreams.level(runSeed, floor - 1)), enemyCount);
+        for (int s = 1; s < slots.length && slots[s].playerClass != null; s++) {
+            created.addPlayer(slots[s].playerClass);
+        }
+        if (previous != null) created.carryOver(previous);
+        created.setEnemyUpdatePool(ForkJoinPool.commonPool());
+        return created;
+    }
+
+    private void reply(SocketAddress to, byte type) throws IOException {
+        out.clear();
+        Protocol.putHeader(out, type);
+        out.flip();
+        send(out, to);
+    }
+
+    private void send(ByteBuffer packet, SocketAddress to) throws IOException {
+        // A full socket buffer drops the datagram, as the network might have.
+        bytesSent += channel.send(packet, to);
+    }
+
+    private Slot slotOf(SocketAddress address) {
+        for (Slot slot : slots) {
+            if (address.equals(slot.address)) return slot;
+        }
+        return null;
+    }
+
+    private int indexOf(Slot slot) {
+        for (int s = 0; s < slots.length; s++) {
+            if (slots[s] == slot) return s;
+        }
+        return -1;
+    }
+
+    public int connectedCount() {
+        int count = 0;
+        for (Slot slot : slots) {
+            if (slot.isConnected()) count++;
+        }
+        return count;
+    }
+
+    /** The level being played, or null before anyone joined. Only for the thread calling {@link #tick()}. */
+    public World getWorld() { return world; }
+    public int getFloor() { return floor; }
+    public long getBytesSent() { return bytesSent; }
+    public long getBytesReceived() { return bytesReceived; }
+    public long getSnapshotsSent() { return snapshotsSent; }
+    public long getFullSnapshotsSent() { return fullSnapshotsSent; }
+
+    /** Stops {@link #run()} and closes the socket. */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        channel.close();
+    }
+}
@@ -0,0 +1,124 @@
+package net;
+
+import world.World;
+
+import java.util.Arrays;
+
+/**
+ * One client's view of one server tick, as sent over the wire: all the
+ * players, the portal once found, and the enemies and projectiles around
+ * the client's own player. Values are kept quantized, exactly as sent, so
+ * server and client compare and rebuild them bit for bit. Buffers only
+ * grow.
+ */
+public class NetState {
+    /** Ids on the wire above this are treated as corrupt. */
+    static final int MAX_ENEMY_ID = 1 << 20;
+
+    int seq = -1;
+    int tick;
+    int floor;
+    World.Outcome outcome = World.Outcome.RUNNING;
+    boolean portalDiscovered;
+    int portalX, portalY;
+
+    int playerCount;
+    final int[] playerX = new int[World.MAX_PLAYERS];
+    final int[] playerY = new int[World.MAX_PLAYERS];
+    final int[] playerHealth = new int[World.MAX_PLAYERS];
+    final int[] playerFacing = new int[World.MAX_PLAYERS];
+
+    int enemyCount;
+    int[] enemyId = new int[64];
+    int[] enemyX = new int[64];
+    int[] enemyY = new int[64];
+    int[] enemyHealth = new int[64];
+
+    int projectileCount;
+    int[] projectileX = new int[16];
+    int[] projectileY = new int[16];
+
+    /** Index of each enemy by id, valid where indexStamp matches stamp. */
+    private int[] indexById = new int[64];
+    private int[] indexStamp = new int[64];
+    private int stamp;
+
+    /** Sequence number of the snapshot this state came from; -1 if it holds none. */
+    public int getSeq() { return seq; }
+    public int getTick() { return tick; }
+    public int getFloor() { return floor; }
+    public World.Outcome getOutcome() { return outcome; }
+    public boolean isPortalDiscovered() { return portalDiscovered; }
+    public float getPortalX() { return Protocol.pixels(portalX); }
+    public float getPortalY() { return Protocol.pixels(portalY); }
+
+    public int getPlayerCount() { return playerCount; }
+    public float getPlayerX(int p) { return Protocol.pixels(playerX[p]); }
+    public float getPlayerY(int p) { return Protocol.pixels(playerY[p]); }
+    public int getPlayerHealth(int p) { return playerHealth[p]; }
+    public float getPlayerFacing(int p) { return playerFacing[p] * (360f / 256); }
+
+    public int getEnemyCount() { return enemyCount; }
+    public int getEnemyId(int k) { return enemyId[k]; }
+    public float getEnemyX(int k) { return Protocol.pixels(enemyX[k]); }
+    public float getEnemyY(int k) { return Protocol.pixels(enemyY[k]); }
+    public int getEnemyHealth(int k) { return enemyHealth[k]; }
+
+    public int getProjectileCount() { return projectileCount; }
+    public float getProjectileX(int k) { return Protocol.pixels(projectileX[k]); }
+    public float getProjectileY(int k) { return Protocol.pixels(projectileY[k]); }
+
+    /** Index of the enemy with the given id, or -1 if this state does not have it. */
+    public int indexOfEnemy(int id) {
+        return id >= 0 && id < indexStamp.length && indexStamp[id] == stamp ? indexById[id] : -1;
+    }
+
+    void invalidate() {
+        seq = -1;
+    }
+
+    /** Drops every enemy, and the index with them. */
+    void clearEnemies() {
+        enemyCount = 0;
+        if (++stamp == 0) {
+            Arrays.fill(indexStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    void addEnemy(int id, int x, int y, int health) {
+        if (enemyCount == enemyId.length) {
+            int capacity = enemyCount * 2;
+            enemyId = Arrays.copyOf(enemyId, capacity);
+            enemyX = Arrays.copyOf(enemyX, capacity);
+            enemyY = Arrays.copyOf(enemyY, capacity);
+            enemyHealth = Arrays.copyOf(enemyHealth, capacity);
+        }
+        if (id >= indexById.length) {
+            int capacity = Math.max(id + 1, indexById.length * 2);
+            indexById = Arrays.copyOf(indexById, capacity);
+            indexStamp = Arrays.copyOf(indexStamp, capacity);
+        }
+        enemyId[enemyCount] = id;
+        enemyX[enemyCount] = x;
+        enemyY[enemyCount] = y;
+        enemyHealth[enemyCount] = health;
+        indexById[id] = enemyCount;
+        indexStamp[id] = stamp;
+        enemyCount++;
+    }
+
+    void clearProjectiles() {
+        projectileCount = 0;
+    }
+
+    void addProjectile(int x, int y) {
+        if (projectileCount == projectileX.length) {
+            projectileX = Arrays.copyOf(projectileX, projectileCount * 2);
+            projectileY = Arrays.copyOf(projectileY, projectileCount * 2);
+        }
+        projectileX[projectileCount] = x;
+        projectileY[projectileCount] = y;
+        projectileCount++;
+    }
+}
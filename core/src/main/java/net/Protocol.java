@@ -0,0 +1,82 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by {@link CoopServer} and {@link CoopClient}. Every
+ * datagram starts with PROTOCOL_ID and a packet type; anything else is
+ * dropped. Big-endian, with varints for ids and counts.
+ *
+ * <ul>
+ * <li>HELLO, client to server: player class name. Sent until answered.</li>
+ * <li>WELCOME: the client's slot and the run seed.</li>
+ * <li>FULL: every slot is taken.</li>
+ * <li>INPUT, every tick: the latest snapshot received, an input sequence
+ * number, held directions and a count of attack presses. The count makes
+ * a press survive lost packets.</li>
+ * <li>SNAPSHOT, every tick: see {@link SnapshotCodec}.</li>
+ * <li>BYE: the client leaves.</li>
+ * </ul>
+ *
+ * Positions are sent as unsigned 16-bit counts of 1/POSITION_SCALE pixel,
+ * which covers classic maps with room to spare.
+ */
+final class Protocol {
+    static final short PROTOCOL_ID = 0x4753;
+    static final byte HELLO = 1;
+    static final byte WELCOME = 2;
+    static final byte FULL = 3;
+    static final byte INPUT = 4;
+    static final byte SNAPSHOT = 5;
+    static final byte BYE = 6;
+
+    /** Snapshots stay under a common path MTU so they are never fragmented. */
+    static final int MAX_SNAPSHOT_BYTES = 1200;
+    static final int MAX_PACKET_BYTES = 1500;
+    static final int POSITION_SCALE = 4;
+    static final int MAX_CLASS_NAME_BYTES = 32;
+
+    private Protocol() {}
+
+    static void putHeader(ByteBuffer out, byte type) {
+        out.putShort(PROTOCOL_ID);
+        out.put(type);
+    }
+
+    /** The packet's type, or 0 if it is not one of ours. */
+    static byte getHeader(ByteBuffer in) {
+        if (in.remaining() < 3 || in.getShort() != PROTOCOL_ID) return 0;
+        return in.get();
+    }
+
+    static int quantize(float pixels) {
+        return Math.max(0, Math.min(0xFFFF, Math.round(pixels * POSITION_SCALE)));
+    }
+
+    static float pixels(int quantized) {
+        return quantized / (float) POSITION_SCALE;
+    }
+
+    static int quantizeAngle(float degrees) {
+        return Math.round(degrees * (256 / 360f)) & 0xFF;
+    }
+
+    static void putVarInt(ByteBuffer out, int v) {
+        while ((v & ~0x7F) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    static int getVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Bad varint");
+    }
+}
@@ -0,0 +1,307 @@
+package net;
+
+import com.badlogic.gdx.utils.IntArray;
+import entities.EnemyGrid;
+import entities.EnemyStore;
+import entities.Player;
+import entities.ProjectileStore;
+import maps.DungeonGenerator;
+import maps.Portal;
+import world.World;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes a {@link NetState} against an older one the client is known to
+ * have, its baseline, and rebuilds it on the other side from the same
+ * baseline.
+ *
+ * Layout after the packet header: sequence number, baseline sequence (-1
+ * for none), tick, floor, outcome, portal flag and position, then every
+ * player in full (there are at most four), the projectiles around the
+ * client's player in full (they live too briefly to be worth a delta),
+ * and the enemies around it as a delta: ids that left, then for each enemy
+ * that is new or changed, its id, a mask of the fields that follow, and
+ * the fields. An enemy that did not change costs nothing. Position changes
+ * that fit go as signed bytes.
+ *
+ * Only enemies inside the interest box around the client's player are
+ * sent. If they do not all fit in MAX_SNAPSHOT_BYTES, the ones in view go
+ * first; the rest keep their baseline values on both sides and catch up
+ * in a later snapshot.
+ */
+final class SnapshotCodec {
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
+    /** Half the area the game screen draws around the player, in pixels. */
+    static final float VIEW_HALF_WIDTH = 10 * TILE_SIZE;
+    static final float VIEW_HALF_HEIGHT = 7 * TILE_SIZE;
+    /** Enemies are sent from a little further out, so they are known before they walk into view. */
+    static final float INTEREST_HALF_WIDTH = VIEW_HALF_WIDTH + 2 * TILE_SIZE;
+    static final float INTEREST_HALF_HEIGHT = VIEW_HALF_HEIGHT + 2 * TILE_SIZE;
+    static final int MAX_PROJECTILES = 32;
+
+    private static final int X = 1;
+    private static final int Y = 2;
+    private static final int HEALTH = 4;
+    /** X and Y, where present, are signed byte deltas from the baseline. */
+    private static final int SMALL = 8;
+    private static final int MAX_ENEMY_BYTES = 3 + 1 + 2 + 2 + 1;
+    private static final int PORTAL = 1;
+
+    private final IntArray nearby = new IntArray();
+    /** Marks ids, valid where the stamp matches: enemies in interest when writing, removed ones when reading. */
+    private int[] marks = new int[64];
+    private int mark;
+
+    /**
+     * Writes the snapshot of the world for the player in slot into buf,
+     * against baseline (null for a full snapshot), and records in out what
+     * the client will hold once it has read it.
+     */
+    void write(World world, int floor, int slot, int seq, NetState baseline, NetState out, ByteBuffer buf) {
+        int limit = buf.position() + Protocol.MAX_SNAPSHOT_BYTES;
+        Protocol.putHeader(buf, Protocol.SNAPSHOT);
+        buf.putInt(seq);
+        buf.putInt(baseline == null ? -1 : baseline.seq);
+        writeLevel(world, floor, seq, out, buf);
+
+        Player self = world.getPlayer(slot);
+        float cx = self.centerX();
+        float cy = self.centerY();
+        writeProjectiles(world.getProjectiles(), cx, cy, out, buf);
+        writeEnemies(world.getEnemies(), world.getEnemyGrid(), cx, cy, baseline, out, buf, limit);
+    }
+
+    private void writeLevel(World world, int floor, int seq, NetState out, ByteBuffer buf) {
+        out.seq = seq;
+        out.tick = (int) world.getTick();
+        out.floor = floor;
+        out.outcome = world.getOutcome();
+        Portal portal = world.getPortal();
+        out.portalDiscovered = world.isPortalDiscovered() && portal != null;
+        out.portalX = out.portalDiscovered ? Protocol.quantize(portal.getX()) : 0;
+        out.portalY = out.portalDiscovered ? Protocol.quantize(portal.getY()) : 0;
+        buf.putInt(out.tick);
+        Protocol.putVarInt(buf, floor);
+        buf.put((byte) out.outcome.ordinal());
+        buf.put((byte) (out.portalDiscovered ? PORTAL : 0));
+        if (out.portalDiscovered) {
+            buf.putShort((short) out.portalX);
+            buf.putShort((short) out.portalY);
+        }
+
+        out.playerCount = world.getPlayerCount();
+        buf.put((byte) out.playerCount);
+        for (int p = 0; p < out.playerCount; p++) {
+            Player player = world.getPlayer(p);
+            out.playerX[p] = Protocol.quantize(player.x);
+            out.playerY[p] = Protocol.quantize(player.y);
+            out.playerHealth[p] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, player.health));
+            out.playerFacing[p] = Protocol.quantizeAngle(player.facingAngle);
+            buf.putShort((short) out.playerX[p]);
+            buf.putShort((short) out.playerY[p]);
+            buf.putShort((short) out.playerHealth[p]);
+            buf.put((byte) out.playerFacing[p]);
+        }
+    }
+
+    private void writeProjectiles(ProjectileStore projectiles, float cx, float cy, NetState out, ByteBuffer buf) {
+        out.clearProjectiles();
+        int countAt = buf.position();
+        buf.put((byte) 0);
+        for (int i = 0, n = projectiles.size(); i < n && out.projectileCount < MAX_PROJECTILES; i++) {
+            if (Math.abs(projectiles.x[i] - cx) > INTEREST_HALF_WIDTH || Math.abs(projectiles.y[i] - cy) > INTEREST_HALF_HEIGHT) continue;
+            int x = Protocol.quantize(projectiles.x[i]);
+            int y = Protocol.quantize(projectiles.y[i]);
+            out.addProjectile(x, y);
+            buf.putShort((short) x);
+            buf.putShort((short) y);
+        }
+        buf.put(countAt, (byte) out.projectileCount);
+    }
+
+    private void writeEnemies(EnemyStore enemies, EnemyGrid grid, float cx, float cy, NetState baseline,
+                              NetState out, ByteBuffer buf, int limit) {
+        nearby.clear();
+        grid.queryBox(enemies, cx - INTEREST_HALF_WIDTH, cy - INTEREST_HALF_HEIGHT,
+            2 * INTEREST_HALF_WIDTH, 2 * INTEREST_HALF_HEIGHT, nearby);
+        nextMark(enemies.idCapacity());
+        for (int k = 0; k < nearby.size; k++) {
+            marks[nearby.get(k)] = mark;
+        }
+
+        out.clearEnemies();
+        int countAt = buf.position();
+        buf.putShort((short) 0);
+        int removed = 0;
+        if (baseline != null) {
+            for (int k = 0; k < baseline.enemyCount; k++) {
+                int id = baseline.enemyId[k];
+                if (id < marks.length && marks[id] == mark) continue;
+                if (buf.position() + 3 + 2 > limit) {
+                    // No room to say it left: the client keeps it a little longer.
+                    out.addEnemy(id, baseline.enemyX[k], baseline.enemyY[k], baseline.enemyHealth[k]);
+                    continue;
+                }
+                Protocol.putVarInt(buf, id);
+                removed++;
+            }
+        }
+        buf.putShort(countAt, (short) removed);
+
+        countAt = buf.position();
+        buf.putShort((short) 0);
+        int updated = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int k = 0; k < nearby.size; k++) {
+                int id = nearby.get(k);
+                int i = enemies.index(id);
+                boolean inView = Math.abs(enemies.x[i] - cx) <= VIEW_HALF_WIDTH && Math.abs(enemies.y[i] - cy) <= VIEW_HALF_HEIGHT;
+                if (inView != (pass == 0)) continue;
+                if (writeEnemy(id, enemies, i, baseline, out, buf, limit)) updated++;
+            }
+        }
+        buf.putShort(countAt, (short) updated);
+    }
+
+    /** Records one enemy in out; returns whether it took an entry in the packet. */
+    private static boolean writeEnemy(int id, EnemyStore enemies, int i, NetState baseline, NetState out,
+                                      ByteBuffer buf, int limit) {
+        int x = Protocol.quantize(enemies.x[i]);
+        int y = Protocol.quantize(enemies.y[i]);
+        int health = Math.max(0, Math.min(0xFF, enemies.health[i]));
+        int b = baseline == null ? -1 : baseline.indexOfEnemy(id);
+
+        int mask;
+        int dx = 0, dy = 0;
+        if (b >= 0) {
+            dx = x - baseline.enemyX[b];
+            dy = y - baseline.enemyY[b];
+            mask = (dx != 0 ? X : 0) | (dy != 0 ? Y : 0) | (health != baseline.enemyHealth[b] ? HEALTH : 0);
+            if (mask == 0) {
+                out.addEnemy(id, x, y, health);
+                return false;
+            }
+            if (dx >= Byte.MIN_VALUE && dx <= Byte.MAX_VALUE && dy >= Byte.MIN_VALUE && dy <= Byte.MAX_VALUE) mask |= SMALL;
+        } else {
+            mask = X | Y | HEALTH;
+        }
+
+        if (buf.position() + MAX_ENEMY_BYTES > limit) {
+            if (b >= 0) out.addEnemy(id, baseline.enemyX[b], baseline.enemyY[b], baseline.enemyHealth[b]);
+            return false;
+        }
+        Protocol.putVarInt(buf, id);
+        buf.put((byte) mask);
+        if ((mask & X) != 0) {
+            if ((mask & SMALL) != 0) buf.put((byte) dx);
+            else buf.putShort((short) x);
+        }
+        if ((mask & Y) != 0) {
+            if ((mask & SMALL) != 0) buf.put((byte) dy);
+            else buf.putShort((short) y);
+        }
+        if ((mask & HEALTH) != 0) buf.put((byte) health);
+        out.addEnemy(id, x, y, health);
+        return true;
+    }
+
+    /** The sequence number of the snapshot in, which must be positioned after the packet header. */
+    static int peekSeq(ByteBuffer in) {
+        return in.getInt(in.position());
+    }
+
+    /** The sequence number of the snapshot's baseline, or -1 if it has none. */
+    static int peekBaselineSeq(ByteBuffer in) {
+        return in.getInt(in.position() + 4);
+    }
+
+    /**
+     * Rebuilds into out the state a snapshot describes, from the baseline
+     * it names (null if it names none). Throws on anything malformed, and
+     * out is then left half written.
+     */
+    void read(ByteBuffer in, NetState baseline, NetState out) throws IOException {
+        out.seq = in.getInt();
+        in.getInt();
+        out.tick = in.getInt();
+        out.floor = Protocol.getVarInt(in);
+        int outcome = in.get();
+        if (outcome < 0 || outcome >= World.Outcome.values().length) throw new IOException("Bad outcome " + outcome);
+        out.outcome = World.Outcome.values()[outcome];
+        out.portalDiscovered = (in.get() & PORTAL) != 0;
+        out.portalX = out.portalDiscovered ? in.getShort() & 0xFFFF : 0;
+        out.portalY = out.portalDiscovered ? in.getShort() & 0xFFFF : 0;
+
+        out.playerCount = in.get();
+        if (out.playerCount < 0 || out.playerCount > World.MAX_PLAYERS) throw new IOException("Bad player count " + out.playerCount);
+        for (int p = 0; p < out.playerCount; p++) {
+            out.playerX[p] = in.getShort() & 0xFFFF;
+            out.playerY[p] = in.getShort() & 0xFFFF;
+            out.playerHealth[p] = in.getShort();
+            out.playerFacing[p] = in.get() & 0xFF;
+        }
+
+        out.clearProjectiles();
+        for (int k = 0, n = in.get() & 0xFF; k < n; k++) {
+            out.addProjectile(in.getShort() & 0xFFFF, in.getShort() & 0xFFFF);
+        }
+
+        readEnemies(in, baseline, out);
+    }
+
+    private void readEnemies(ByteBuffer in, NetState baseline, NetState out) throws IOException {
+        nextMark(0);
+        int removed = in.getShort() & 0xFFFF;
+        for (int k = 0; k < removed; k++) {
+            int id = readEnemyId(in);
+            ensureMarks(id + 1);
+            marks[id] = mark;
+        }
+
+        out.clearEnemies();
+        if (baseline != null) {
+            for (int k = 0; k < baseline.enemyCount; k++) {
+                int id = baseline.enemyId[k];
+                if (id < marks.length && marks[id] == mark) continue;
+                out.addEnemy(id, baseline.enemyX[k], baseline.enemyY[k], baseline.enemyHealth[k]);
+            }
+        }
+
+        int updated = in.getShort() & 0xFFFF;
+        for (int k = 0; k < updated; k++) {
+            int id = readEnemyId(in);
+            int mask = in.get() & 0xFF;
+            int i = out.indexOfEnemy(id);
+            if (i < 0) {
+                if ((mask & (X | Y | HEALTH | SMALL)) != (X | Y | HEALTH)) throw new IOException("Partial update of unknown enemy " + id);
+                out.addEnemy(id, 0, 0, 0);
+                i = out.enemyCount - 1;
+            }
+            boolean small = (mask & SMALL) != 0;
+            if ((mask & X) != 0) out.enemyX[i] = small ? out.enemyX[i] + in.get() : in.getShort() & 0xFFFF;
+            if ((mask & Y) != 0) out.enemyY[i] = small ? out.enemyY[i] + in.get() : in.getShort() & 0xFFFF;
+            if ((mask & HEALTH) != 0) out.enemyHealth[i] = in.get() & 0xFF;
+        }
+    }
+
+    private static int readEnemyId(ByteBuffer in) throws IOException {
+        int id = Protocol.getVarInt(in);
+        if (id < 0 || id >= NetState.MAX_ENEMY_ID) throw new IOException("Bad enemy id " + id);
+        return id;
+    }
+
+    private void nextMark(int capacity) {
+        ensureMarks(capacity);
+        if (++mark == 0) {
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+    }
+
+    private void ensureMarks(int capacity) {
+        if (capacity > marks.length) marks = Arrays.copyOf(marks, Math.max(capacity, marks.length * 2));
+    }
+}
@@ -1,55 +1,88 @@
 package screens;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.Color;
 import com.Klimenntiy.GameForSummer.MainGame;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import entities.*;
 import entities.MainCharacterTypes.PlayerClass;
+import maps.ChunkedDungeon;
 import maps.DungeonGenerator;
 import maps.Portal;
-
-import java.util.ArrayList;
+import world.FrameProfiler;
+import world.InputPlayback;
+import world.InputRecorder;
+import world.LevelLoader;
+import world.PlayerInput;
+import world.SaveGame;
+import world.SimulationThread;
+import world.SnapshotBuffer;
+import world.World;
+import world.WorldSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
 
 public class GameScreen implements Screen {
 
     private final MainGame game;
-    private final PlayerClass playerClass;
-    private final ArrayList<Enemy> enemies = new ArrayList<>();
+    private PlayerClass playerClass;
+    private boolean chunked;
+    private final InputPlayback playback;
+    private InputRecorder recorder;
+    private boolean reproducible;
     private OrthographicCamera camera;
     private ShapeRenderer shapeRenderer;
     private SpriteBatch batch;
     private BitmapFont font;
-    private int[][] map;
-
-    private float playerX, playerY;
-    private float playerFacingAngle = 0f;
-    private int playerHealth;
 
-    private float attackCooldown;
-
-    private static final int ENEMY_COUNT = 5;
-    private static final int TILE_SIZE = 16;
-    private static final int PLAYER_SIZE = 12;
+    private World world;
+    private TileLayerCache tileLayer;
+    private Minimap minimap;
+    private LevelLoader levelLoader;
+    private long runSeed;
+    private int floor;
+    private FrameProfiler profiler;
+    private FrameProfiler simulationProfiler;
+    private ProfilerOverlay profilerOverlay;
+    private final PlayerInput input = new PlayerInput();
+    private float viewLeft, viewBottom, viewRight, viewTop;
+
+    // Filled on this thread, or by the simulation thread when there is one.
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private boolean threaded;
+    private SimulationThread simulation;
+    private World layerWorld;
+    private float drawPlayerX, drawPlayerY;
+
+    private final HudText hudText = new HudText();
+    private final GlyphLayout hudLayout = new GlyphLayout();
+    private float accumulator;
+
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
     private static final int VIEW_WIDTH = 10;
     private static final int VIEW_HEIGHT = 7;
+    private static final float MAX_FRAME_TIME = 0.25f;
+    private static final float CAPTURE_HALF_WIDTH = VIEW_WIDTH * TILE_SIZE;
+    private static final float CAPTURE_HALF_HEIGHT = VIEW_HEIGHT * TILE_SIZE;
+    private static final String SAVE_FILE = "savegame.bin";
 
-    private Portal portal;
-    private boolean portalDiscovered = false;
-    private boolean levelCompleted = false;
-    private float deathTimer;
-    private float teleportTimer;
-
-    private float attackBoxX, attackBoxY, attackBoxW, attackBoxH;
-    private float showAttackBoxTimer = 0f;
-
-    private boolean[][] explored;
     private boolean showFullMap = false;
 
     private Matrix4 uiMatrix;
@@ -57,8 +90,15 @@ public class GameScreen implements Screen {
     public GameScreen(MainGame game, PlayerClass playerClass) {
         this.game = game;
         this.playerClass = playerClass;
-        this.playerHealth = playerClass.getMaxHealth();
-        this.attackCooldown = 0f;
+        this.chunked = game.isChunkedWorld();
+        this.playback = null;
+    }
+
+    public GameScreen(MainGame game, InputPlayback playback) {
+        this.game = game;
+        this.playerClass = playback.createPlayerClass();
+        this.chunked = playback.isChunked();
+        this.playback = playback;
     }
 
     @Override
@@ -66,8 +106,6 @@ public class GameScreen implements Screen {
         camera = new OrthographicCamera();
         camera.setToOrtho(false, VIEW_WIDTH * TILE_SIZE, VIEW_HEIGHT * TILE_SIZE);
 
-        explored = new boolean[DungeonGenerator.WIDTH][DungeonGenerator.HEIGHT];
-
         shapeRenderer = new ShapeRenderer();
         batch = new SpriteBatch();
         font = new BitmapFont();
@@ -75,291 +113,475 @@ public class GameScreen implements Screen {
         font.getData().setScale(3f);
         uiMatrix = new Matrix4().setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
 
-        DungeonGenerator dungeon = new DungeonGenerator();
-        map = dungeon.getMap();
-
-        placePlayerRandomly();
-        spawnEnemies();
-        placePortalInLastRoom(dungeon);
+        profiler = new FrameProfiler();
+        profiler.setEnabled(game.isProfiling());
+        simulationProfiler = new FrameProfiler();
+        simulationProfiler.setEnabled(game.isProfiling());
+        profilerOverlay = new ProfilerOverlay();
+
+        runSeed = playback != null ? playback.getRunSeed() : System.nanoTime();
+        if (playback == null && game.getRecordFile() != null) startRecording();
+        reproducible = playback != null || recorder != null;
+        // Recording and replay step on this thread, where ticks and floor changes happen in recorded order.
+        threaded = game.isSimulationThreaded() && !reproducible;
+
+        floor = 1;
+        world = createWorld(floor);
+        accumulator = 0f;
+        tileLayer = new TileLayerCache(world.getWidth(), world.getHeight());
+        minimap = new Minimap(world.getWidth(), world.getHeight());
+        layerWorld = world;
+        levelLoader = new LevelLoader();
+        if (playback == null) prepareNextFloor();
+        startWorld();
         updateCameraPosition();
     }
 
-    private void placePlayerRandomly() {
-        while (true) {
-            int x = (int) (Math.random() * DungeonGenerator.WIDTH);
-            int y = (int) (Math.random() * DungeonGenerator.HEIGHT);
-            if (map[x][y] == DungeonGenerator.TILE_EMPTY) {
-                playerX = x * TILE_SIZE + (TILE_SIZE - PLAYER_SIZE) / 2f;
-                playerY = y * TILE_SIZE + (TILE_SIZE - PLAYER_SIZE) / 2f;
-                break;
-            }
+    private void startWorld() {
+        publishSnapshot();
+        acquireSnapshot();
+        drawPlayerX = snapshots.getCurrent().playerX;
+        drawPlayerY = snapshots.getCurrent().playerY;
+        if (!threaded) return;
+        world.setProfiler(simulationProfiler);
+        simulation = new SimulationThread(world, snapshots, simulationProfiler, CAPTURE_HALF_WIDTH, CAPTURE_HALF_HEIGHT);
+        simulation.start();
+    }
+
+    private void stopSimulation() {
+        if (simulation == null) return;
+        simulation.stop();
+        simulation = null;
+    }
+
+    private void publishSnapshot() {
+        snapshots.beginWrite().capture(world, CAPTURE_HALF_WIDTH, CAPTURE_HALF_HEIGHT);
+        snapshots.publish();
+    }
+
+    private void acquireSnapshot() {
+        if (!snapshots.acquire()) return;
+        WorldSnapshot current = snapshots.getCurrent();
+        profiler.begin(FrameProfiler.Phase.TILE_BAKE);
+        prepareLayers(current.world);
+        tileLayer.bake(current, shapeRenderer);
+        minimap.update(current);
+        profiler.end(FrameProfiler.Phase.TILE_BAKE);
+    }
+
+    private void prepareLayers(World shown) {
+        if (shown == layerWorld) return;
+        layerWorld = shown;
+        if (tileLayer.fits(shown.getWidth(), shown.getHeight())) {
+            tileLayer.reset();
+        } else {
+            tileLayer.dispose();
+            tileLayer = new TileLayerCache(shown.getWidth(), shown.getHeight());
+        }
+        if (minimap.fits(shown.getWidth(), shown.getHeight())) {
+            minimap.reset();
+        } else {
+            minimap.dispose();
+            minimap = new Minimap(shown.getWidth(), shown.getHeight());
         }
     }
 
-    private void spawnEnemies() {
-        int spawned = 0;
-        while (spawned < ENEMY_COUNT) {
-            int x = (int) (Math.random() * DungeonGenerator.WIDTH);
-            int y = (int) (Math.random() * DungeonGenerator.HEIGHT);
-            if (map[x][y] == DungeonGenerator.TILE_EMPTY) {
-                float ex = x * TILE_SIZE + (TILE_SIZE - Enemy.SIZE) / 2f;
-                float ey = y * TILE_SIZE + (TILE_SIZE - Enemy.SIZE) / 2f;
-                enemies.add(new Enemy(ex, ey));
-                spawned++;
-            }
+    private void startRecording() {
+        try {
+            recorder = new InputRecorder(new BufferedOutputStream(new FileOutputStream(game.getRecordFile())),
+                playerClass.getClassName(), runSeed, chunked);
+        } catch (IOException e) {
+            Gdx.app.error("GameScreen", "Could not start recording to " + game.getRecordFile(), e);
         }
     }
 
-    private void placePortalInLastRoom(DungeonGenerator dungeon) {
-        maps.Room lastRoom = dungeon.getLastRoom();
-        if (lastRoom != null) {
-            int x = lastRoom.centerX();
-            int y = lastRoom.centerY();
-            portal = new Portal(
-                x * TILE_SIZE + (TILE_SIZE - 20) / 2f,
-                y * TILE_SIZE + (TILE_SIZE - 20) / 2f,
-                20);
+    private void record(PlayerInput input) {
+        if (recorder == null) return;
+        try {
+            recorder.record(input);
+        } catch (IOException e) {
+            stopRecording(e);
         }
     }
 
-    private void updateExplored() {
-        int radius = 6;
-        int centerX = (int) (playerX / TILE_SIZE);
-        int centerY = (int) (playerY / TILE_SIZE);
-
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                int x = centerX + dx;
-                int y = centerY + dy;
-                if (x >= 0 && y >= 0 && x < DungeonGenerator.WIDTH && y < DungeonGenerator.HEIGHT) {
-                    explored[x][y] = true;
-                    if (!portalDiscovered && portal != null) {
-                        float px = x * TILE_SIZE;
-                        float py = y * TILE_SIZE;
-                        if (px <= portal.getX() + portal.getSize() && px + TILE_SIZE >= portal.getX() &&
-                            py <= portal.getY() + portal.getSize() && py + TILE_SIZE >= portal.getY()) {
-                            portalDiscovered = true;
-                        }
-                    }
-                }
+    private void stopRecording(IOException cause) {
+        Gdx.app.error("GameScreen", "Recording stopped", cause);
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+        }
+        recorder = null;
+    }
+
+    private World createWorld(int floor) {
+        World created = World.createFloor(playerClass, runSeed, floor, chunked, reproducible);
+        created.setEnemyUpdatePool(ForkJoinPool.commonPool());
+        created.setProfiler(profiler);
+        return created;
+    }
+
+    private void prepareNextFloor() {
+        int next = floor + 1;
+        levelLoader.prepare(() -> createWorld(next));
+    }
+
+    private void advanceFloor() {
+        World next = levelLoader.poll();
+        if (next == null) return;
+
+        stopSimulation();
+        if (recorder != null) {
+            try {
+                recorder.nextFloor();
+            } catch (IOException e) {
+                stopRecording(e);
             }
         }
+        switchFloor(next);
+        accumulator = 0f;
+        prepareNextFloor();
+        startWorld();
     }
 
-    private boolean canMoveTo(float x, float y) {
-        return isTileEmpty(x, y) &&
-            isTileEmpty(x + PLAYER_SIZE - 1, y) &&
-            isTileEmpty(x, y + PLAYER_SIZE - 1) &&
-            isTileEmpty(x + PLAYER_SIZE - 1, y + PLAYER_SIZE - 1);
+    private void switchFloor(World next) {
+        next.carryOver(world);
+        floor++;
+        replaceWorld(next);
     }
 
-    private boolean isTileEmpty(float x, float y) {
-        int tileX = (int) (x / TILE_SIZE);
-        int tileY = (int) (y / TILE_SIZE);
-        return tileX >= 0 && tileX < DungeonGenerator.WIDTH && tileY >= 0 && tileY < DungeonGenerator.HEIGHT
-            && map[tileX][tileY] == DungeonGenerator.TILE_EMPTY;
+    private void replaceWorld(World next) {
+        world.dispose();
+        world = next;
     }
 
-    private void updateCameraPosition() {
-        if (showFullMap) {
-            camera.position.set(
-                (DungeonGenerator.WIDTH * TILE_SIZE) / 2f,
-                (DungeonGenerator.HEIGHT * TILE_SIZE) / 2f,
-                0);
-            camera.viewportWidth = DungeonGenerator.WIDTH * TILE_SIZE;
-            camera.viewportHeight = DungeonGenerator.HEIGHT * TILE_SIZE;
-        } else {
-            camera.viewportWidth = VIEW_WIDTH * TILE_SIZE;
-            camera.viewportHeight = VIEW_HEIGHT * TILE_SIZE;
-            camera.position.set(playerX + PLAYER_SIZE / 2f, playerY + PLAYER_SIZE / 2f, 0);
-            float halfW = camera.viewportWidth / 2f;
-            float halfH = camera.viewportHeight / 2f;
-            camera.position.x = Math.max(halfW, Math.min(camera.position.x, DungeonGenerator.WIDTH * TILE_SIZE - halfW));
-            camera.position.y = Math.max(halfH, Math.min(camera.position.y, DungeonGenerator.HEIGHT * TILE_SIZE - halfH));
+    private void save() {
+        // On the simulation thread, between ticks, when there is one.
+        Path path = Gdx.files.local(SAVE_FILE).file().toPath();
+        int savedFloor = floor;
+        SaveGame.writeAsync(SaveGame.capture(world, runSeed, savedFloor), path).whenComplete((ignored, error) -> {
+            if (error != null) Gdx.app.error("GameScreen", "Could not save to " + path, error);
+            else Gdx.app.log("GameScreen", "Saved floor " + savedFloor + " to " + path);
+        });
+    }
+
+    private void load() {
+        Path path = Gdx.files.local(SAVE_FILE).file().toPath();
+        SaveGame.Loaded loaded;
+        try {
+            loaded = SaveGame.load(path, reproducible);
+        } catch (IOException e) {
+            Gdx.app.error("GameScreen", "Could not load " + path, e);
+            return;
         }
+        if (recorder != null) stopRecording(new IOException("Save loaded during recording"));
+
+        levelLoader.dispose();
+        levelLoader = new LevelLoader();
+        loaded.world.setEnemyUpdatePool(ForkJoinPool.commonPool());
+        loaded.world.setProfiler(profiler);
+        playerClass = loaded.world.getPlayer().getPlayerClass();
+        chunked = loaded.world.getMap() instanceof ChunkedDungeon;
+        runSeed = loaded.runSeed;
+        floor = loaded.floor;
+        replaceWorld(loaded.world);
+        accumulator = 0f;
+        input.clear();
+        prepareNextFloor();
+    }
+
+    private boolean replayTick() {
+        try {
+            while (true) {
+                InputPlayback.Event event = playback.next(input);
+                if (event == InputPlayback.Event.TICK) {
+                    world.step(input);
+                    return true;
+                }
+                if (event == InputPlayback.Event.END) break;
+                switchFloor(createWorld(floor + 1));
+            }
+        } catch (IOException e) {
+            Gdx.app.error("GameScreen", "Replay stopped", e);
+            game.setScreen(new MenuScreen(game));
+            return false;
+        }
+
+        long checksum = world.checksum();
+        boolean matches = checksum == playback.getExpectedChecksum();
+        Gdx.app.log("GameScreen", "Replay finished on floor " + floor + ", checksum "
+            + (matches ? "matches" : "differs: " + Long.toHexString(checksum) + " != " + Long.toHexString(playback.getExpectedChecksum())));
+        game.setScreen(new MenuScreen(game));
+        return false;
+    }
+
+    private void updateCameraPosition() {
+        camera.position.set(drawPlayerX + Player.SIZE / 2f, drawPlayerY + Player.SIZE / 2f, 0);
+        float halfW = camera.viewportWidth / 2f;
+        float halfH = camera.viewportHeight / 2f;
+        camera.position.x = Math.max(halfW, Math.min(camera.position.x, world.getWidth() * TILE_SIZE - halfW));
+        camera.position.y = Math.max(halfH, Math.min(camera.position.y, world.getHeight() * TILE_SIZE - halfH));
         camera.update();
+
+        viewLeft = camera.position.x - halfW;
+        viewBottom = camera.position.y - halfH;
+        viewRight = camera.position.x + halfW;
+        viewTop = camera.position.y + halfH;
+    }
+
+    private boolean inView(float x, float y, float w, float h) {
+        return x < viewRight && x + w > viewLeft && y < viewTop && y + h > viewBottom;
     }
 
     @Override
     public void render(float delta) {
-        handleInput(delta);
-        updateExplored();
+        profiler.beginFrame();
+        profiler.begin(FrameProfiler.Phase.INPUT);
+        boolean stay = handleInput();
+        profiler.end(FrameProfiler.Phase.INPUT);
+        if (!stay) return;
+
+        if (simulation != null) {
+            if (simulation.getFailure() != null) throw new GdxRuntimeException("Simulation stopped", simulation.getFailure());
+            simulation.setInput(input);
+            input.attack = false;
+        } else {
+            accumulator += Math.min(delta, MAX_FRAME_TIME);
+            while (accumulator >= World.TICK) {
+                if (playback != null) {
+                    if (!replayTick()) return;
+                } else {
+                    record(input);
+                    world.step(input);
+                    input.attack = false;
+                }
+                accumulator -= World.TICK;
+            }
+            publishSnapshot();
+        }
+        acquireSnapshot();
+
+        WorldSnapshot current = snapshots.getCurrent();
+        if (playback == null) {
+            if (current.outcome == World.Outcome.PLAYER_DIED) {
+                game.setScreen(new MenuScreen(game));
+                return;
+            }
+            if (current.outcome == World.Outcome.LEVEL_COMPLETED) advanceFloor();
+        }
+
+        current = snapshots.getCurrent();
+        WorldSnapshot previous = snapshots.getPrevious();
+        float alpha = interpolationAlpha(current, previous);
+        drawPlayerX = lerp(previous.playerX, current.playerX, alpha);
+        drawPlayerY = lerp(previous.playerY, current.playerY, alpha);
         updateCameraPosition();
+        draw(current, previous, alpha);
+        profiler.endFrame();
+    }
+
+    private float interpolationAlpha(WorldSnapshot current, WorldSnapshot previous) {
+        // Drawn one tick behind the simulation; previous may be several ticks before current.
+        long span = current.tick - previous.tick;
+        if (simulation == null || previous.world != current.world || span <= 0) return 1f;
+        float elapsed = (System.nanoTime() - current.capturedNanos) / (World.TICK * 1e9f);
+        return 1f - (1f - Math.max(0f, Math.min(elapsed, 1f))) / span;
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    private void draw(WorldSnapshot current, WorldSnapshot previous, float alpha) {
+        Portal portal = current.portal;
 
         Gdx.gl.glClearColor(0, 0, 0, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+        if (!showFullMap) drawWorld(current, previous, alpha);
+
+        profiler.begin(FrameProfiler.Phase.HUD);
+        batch.setProjectionMatrix(uiMatrix);
+        batch.begin();
+        int playerTileX = (int) ((current.playerX + Player.SIZE / 2f) / TILE_SIZE);
+        int playerTileY = (int) ((current.playerY + Player.SIZE / 2f) / TILE_SIZE);
+        int portalTileX = -1;
+        int portalTileY = -1;
+        if (portal != null && current.portalDiscovered) {
+            portalTileX = (int) ((portal.getX() + portal.getSize() / 2f) / TILE_SIZE);
+            portalTileY = (int) ((portal.getY() + portal.getSize() / 2f) / TILE_SIZE);
+        }
+        if (showFullMap) {
+            minimap.drawFull(batch, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(),
+                playerTileX, playerTileY, portalTileX, portalTileY);
+        } else {
+            minimap.drawCorner(batch, Gdx.graphics.getWidth() - 10, Gdx.graphics.getHeight() - 10,
+                playerTileX, playerTileY, portalTileX, portalTileY);
+            updateHud(Math.max(current.playerHealth, 0));
+            font.draw(batch, hudLayout, 10, Gdx.graphics.getHeight() - 10);
+        }
+        if (profiler.isEnabled()) {
+            profilerOverlay.draw(batch, profiler, simulation, 10, Gdx.graphics.getHeight() - 60);
+        }
+        batch.end();
+        profiler.end(FrameProfiler.Phase.HUD);
+    }
+
+    private void updateHud(int health) {
+        if (hudText.update(health, playerClass.getMaxHealth(), floor)) hudLayout.setText(font, hudText.text());
+    }
+
+    private void drawWorld(WorldSnapshot current, WorldSnapshot previous, float alpha) {
+        profiler.begin(FrameProfiler.Phase.TILE_DRAW);
+        batch.setProjectionMatrix(camera.combined);
+        batch.begin();
+        tileLayer.draw(batch, viewLeft, viewBottom, viewRight, viewTop);
+        batch.end();
+        profiler.end(FrameProfiler.Phase.TILE_DRAW);
+
+        profiler.begin(FrameProfiler.Phase.ENTITY_DRAW);
         shapeRenderer.setProjectionMatrix(camera.combined);
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
 
-        for (int x = 0; x < DungeonGenerator.WIDTH; x++) {
-            for (int y = 0; y < DungeonGenerator.HEIGHT; y++) {
-                if (!explored[x][y]) continue;
-                shapeRenderer.setColor(map[x][y] == DungeonGenerator.TILE_WALL ? 0.4f : 0.1f, 0.1f, 0.1f, 1);
-                shapeRenderer.rect(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-            }
-        }
-
-        ArrayList<Enemy> deadEnemies = new ArrayList<>();
-        for (Enemy e : enemies) {
-            e.update(delta, playerX, playerY, map);
-            if (e.canAttack(playerX, playerY)) {
-                playerHealth--;
-                e.attack();
+        // Enemies are drawn where they were between the two snapshots; one missing from the previous one is drawn as is.
+        shapeRenderer.setColor(1, 0, 0, 1);
+        boolean interpolate = alpha < 1f;
+        for (int k = 0; k < current.enemyCount; k++) {
+            float ex = current.enemyX[k];
+            float ey = current.enemyY[k];
+            int before = interpolate ? previous.indexOf(current.enemyId[k]) : -1;
+            if (before >= 0) {
+                ex = lerp(previous.enemyX[before], ex, alpha);
+                ey = lerp(previous.enemyY[before], ey, alpha);
             }
-            if (e.isDead()) deadEnemies.add(e);
+            if (inView(ex, ey, EnemySystem.SIZE, EnemySystem.SIZE)) shapeRenderer.rect(ex, ey, EnemySystem.SIZE, EnemySystem.SIZE);
         }
-        enemies.removeAll(deadEnemies);
 
-        if (!showFullMap) {
-            shapeRenderer.setColor(1, 0, 0, 1);
-            for (Enemy e : enemies) {
-                shapeRenderer.rect(e.x, e.y, Enemy.SIZE, Enemy.SIZE);
-            }
+        // Projectiles fly straight, so backing off along their velocity interpolates them without matching.
+        shapeRenderer.setColor(1f, 0.8f, 0.2f, 1f);
+        float behind = (1f - alpha) * (current.tick - previous.tick) * World.TICK;
+        for (int i = 0; i < current.projectileCount; i++) {
+            float side = current.projectileSide[i];
+            float px = current.projectileX[i] - current.projectileVX[i] * behind - side / 2f;
+            float py = current.projectileY[i] - current.projectileVY[i] * behind - side / 2f;
+            if (inView(px, py, side, side)) shapeRenderer.rect(px, py, side, side);
         }
 
         shapeRenderer.setColor(0, 1, 0, 1);
-        shapeRenderer.rect(playerX, playerY, PLAYER_SIZE, PLAYER_SIZE);
+        shapeRenderer.rect(drawPlayerX, drawPlayerY, Player.SIZE, Player.SIZE);
 
-        if (!showFullMap || portalDiscovered) {
+        Portal portal = current.portal;
+        if (portal != null && inView(portal.getX(), portal.getY(), portal.getSize(), portal.getSize())) {
             shapeRenderer.setColor(0.3f, 0.3f, 1f, 1f);
             shapeRenderer.rect(portal.getX(), portal.getY(), portal.getSize(), portal.getSize());
         }
 
-        if (playerHealth <= 0) {
+        if (current.playerHealth <= 0) {
             shapeRenderer.setColor(1, 0, 0, 1);
-            shapeRenderer.rectLine(playerX, playerY + PLAYER_SIZE, playerX + PLAYER_SIZE, playerY, 2);
-            shapeRenderer.rectLine(playerX, playerY, playerX + PLAYER_SIZE, playerY + PLAYER_SIZE, 2);
+            shapeRenderer.rectLine(drawPlayerX, drawPlayerY + Player.SIZE, drawPlayerX + Player.SIZE, drawPlayerY, 2);
+            shapeRenderer.rectLine(drawPlayerX, drawPlayerY, drawPlayerX + Player.SIZE, drawPlayerY + Player.SIZE, 2);
         }
 
-        if (showAttackBoxTimer > 0f) {
+        if (current.attackBoxVisible) {
             shapeRenderer.setColor(1, 1, 0, 1);
-            shapeRenderer.rect(attackBoxX, attackBoxY, attackBoxW, attackBoxH);
-            showAttackBoxTimer -= delta;
+            shapeRenderer.rect(current.attackBoxX, current.attackBoxY, current.attackBoxW, current.attackBoxH);
         }
 
         shapeRenderer.end();
-
-        if (!showFullMap) {
-            batch.setProjectionMatrix(uiMatrix);
-            batch.begin();
-            font.draw(batch, "HP: " + Math.max(playerHealth, 0) + "/" + playerClass.getMaxHealth(), 10, Gdx.graphics.getHeight() - 10);
-            batch.end();
-        }
-
-        if (playerHealth <= 0 && deathTimer <= 0) {
-            deathTimer = 3.0f;
-        }
-
-        if (playerHealth <= 0) {
-            deathTimer -= delta;
-            if (deathTimer <= 0) {
-                game.setScreen(new MenuScreen(game));
-            }
-        }
+        profiler.end(FrameProfiler.Phase.ENTITY_DRAW);
     }
 
-    private void handleInput(float delta) {
-        if (playerHealth <= 0) return;
+    private boolean handleInput() {
+        boolean alive = snapshots.getCurrent().playerHealth > 0;
 
-        if (Gdx.input.isKeyJustPressed(com.badlogic.gdx.Input.Keys.ESCAPE)) {
+        if (alive && Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
             game.setScreen(new MenuScreen(game));
-            return;
+            return false;
         }
 
-        if (Gdx.input.isKeyJustPressed(com.badlogic.gdx.Input.Keys.M)) showFullMap = !showFullMap;
-        if (showFullMap) return;
-
-        float speed = 150;
-        float newX = playerX, newY = playerY;
-        if (Gdx.input.isKeyPressed(com.badlogic.gdx.Input.Keys.W)) newY += speed * delta;
-        if (Gdx.input.isKeyPressed(com.badlogic.gdx.Input.Keys.S)) newY -= speed * delta;
-        if (Gdx.input.isKeyPressed(com.badlogic.gdx.Input.Keys.A)) newX -= speed * delta;
-        if (Gdx.input.isKeyPressed(com.badlogic.gdx.Input.Keys.D)) newX += speed * delta;
-
-        if (canMoveTo(newX, newY)) {
-            float dx = newX - playerX, dy = newY - playerY;
-            if (dx != 0 || dy != 0) playerFacingAngle = (float) Math.toDegrees(Math.atan2(dy, dx));
-            playerX = newX; playerY = newY;
+        if (alive && Gdx.input.isKeyJustPressed(Input.Keys.M)) showFullMap = !showFullMap;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+            profiler.setEnabled(!profiler.isEnabled());
+            simulationProfiler.setEnabled(profiler.isEnabled());
         }
+        if (playback != null) return true;
 
-        attackCooldown -= delta;
-
-        if (Gdx.input.isKeyJustPressed(com.badlogic.gdx.Input.Keys.SPACE) && attackCooldown <= 0f) {
-            double rad = Math.toRadians(playerFacingAngle);
-            float cos = (float) Math.cos(rad);
-            float sin = (float) Math.sin(rad);
-
-            float forwardX = cos;
-            float forwardY = sin;
-            float rightX = -sin;
-            float rightY = cos;
-
-            float centerX = playerX + PLAYER_SIZE / 2f;
-            float centerY = playerY + PLAYER_SIZE / 2f;
-
-            float attackLength = 100f;
-            float attackThickness = 8f;
-            float startOffset = PLAYER_SIZE / 2f;
-
-            if (playerClass.getClassName().equals("Mage")) {
-                attackLength = 12f;
-                attackThickness = 12f;
-                startOffset = PLAYER_SIZE + 20f;
-            } else if (playerClass.getClassName().equals("Warrior")) {
-                attackLength = 16f;
-                attackThickness = 16f;
-                startOffset = PLAYER_SIZE / 2f;
-            }
-
-            float edgeX = centerX + forwardX * startOffset;
-            float edgeY = centerY + forwardY * startOffset;
-
-            float attackCenterX = edgeX + forwardX * (attackLength / 2f);
-            float attackCenterY = edgeY + forwardY * (attackLength / 2f);
-
-            float attackW = Math.abs(forwardX * attackLength + rightX * attackThickness);
-            float attackH = Math.abs(forwardY * attackLength + rightY * attackThickness);
-
-            float attackX = attackCenterX - attackW / 2f;
-            float attackY = attackCenterY - attackH / 2f;
-
-            attackBoxX = attackX;
-            attackBoxY = attackY;
-            attackBoxW = attackW;
-            attackBoxH = attackH;
-            showAttackBoxTimer = 0.15f;
-            attackCooldown = playerClass.getAttackSpeed();
-
-            ArrayList<Enemy> deadEnemies = new ArrayList<>();
-            for (Enemy e : enemies) {
-                if (e.isHit(attackBoxX, attackBoxY, attackBoxW, attackBoxH)) {
-                    e.takeDamage(playerClass.getAttackDamage());
-                    if (e.isDead()) deadEnemies.add(e);
-                }
-            }
-            enemies.removeAll(deadEnemies);
+        if (alive && Gdx.input.isKeyJustPressed(Input.Keys.F5)) {
+            if (simulation != null) simulation.runBetweenTicks(this::save);
+            else save();
         }
-
-        if (!levelCompleted && portal != null && portal.isPlayerInPortal(playerX, playerY, PLAYER_SIZE)) {
-            levelCompleted = true;
-            teleportTimer = 0.1f;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F9)) {
+            stopSimulation();
+            load();
+            startWorld();
         }
 
-        if (levelCompleted) {
-            teleportTimer -= delta;
-            if (teleportTimer <= 0) game.setScreen(new MenuScreen(game));
+        if (showFullMap) {
+            input.clear();
+            return true;
         }
+
+        input.up = Gdx.input.isKeyPressed(Input.Keys.W);
+        input.down = Gdx.input.isKeyPressed(Input.Keys.S);
+        input.left = Gdx.input.isKeyPressed(Input.Keys.A);
+        input.right = Gdx.input.isKeyPressed(Input.Keys.D);
+        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) input.attack = true;
+        return true;
     }
 
     @Override public void resize(int width, int height) { camera.update(); }
     @Override public void pause() {}
     @Override public void resume() {}
-    @Override public void hide() {}
     @Override
-    public void dispose() {
+    public void hide() {
+        stopSimulation();
+        if (recorder != null) {
+            try {
+                recorder.finish(world.checksum());
+            } catch (IOException e) {
+                Gdx.app.error("GameScreen", "Could not finish recording", e);
+            }
+            recorder = null;
+        }
+        levelLoader.dispose();
+        world.dispose();
+        writeProfile();
+        // Game.setScreen only hides the old screen, so its GL objects go here.
+        disposeGraphics();
+    }
+
+    private void writeProfile() {
+        String date = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        writeProfile(profiler, "frame-profile-" + date + ".csv");
+        writeProfile(simulationProfiler, "simulation-profile-" + date + ".csv");
+    }
+
+    private void writeProfile(FrameProfiler recorded, String name) {
+        if (recorded.getRecordedFrames() == 0) return;
+        try (Writer out = new BufferedWriter(Gdx.files.local(name).writer(false, "UTF-8"))) {
+            recorded.writeCsv(out);
+        } catch (IOException | GdxRuntimeException e) {
+            Gdx.app.error("GameScreen", "Could not write " + name, e);
+        }
+    }
+
+    private void disposeGraphics() {
+        if (batch == null) return;
         shapeRenderer.dispose();
+        tileLayer.dispose();
+        minimap.dispose();
         batch.dispose();
         font.dispose();
+        profilerOverlay.dispose();
+        shapeRenderer = null;
+        tileLayer = null;
+        minimap = null;
+        batch = null;
+        font = null;
+        profilerOverlay = null;
+    }
+
+    @Override
+    public void dispose() {
+        disposeGraphics();
     }
 }
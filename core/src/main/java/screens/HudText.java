@@ -0,0 +1,28 @@
+package screens;
+
+/**
+ * The HUD line, built again into one reused builder only when what it
+ * shows changes, so an unchanged HUD costs a comparison per frame.
+ */
+class HudText {
+    private final StringBuilder text = new StringBuilder(32);
+    private int health = Integer.MIN_VALUE;
+    private int maxHealth;
+    private int floor;
+
+    /** Returns true if the text changed and has to be laid out again. */
+    boolean update(int health, int maxHealth, int floor) {
+        if (health == this.health && maxHealth == this.maxHealth && floor == this.floor) return false;
+        this.health = health;
+        this.maxHealth = maxHealth;
+        this.floor = floor;
+        text.setLength(0);
+        text.append("HP: ").append(health).append('/').append(maxHealth)
+            .append("  Floor ").append(floor);
+        return true;
+    }
+
+    CharSequence text() {
+        return text;
+    }
+}
@@ -0,0 +1,145 @@
+package screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+import world.WorldSnapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The explored map at one pixel per tile. Newly explored tiles are written
+ * into a pixmap and only the band of rows they touch is uploaded again,
+ * so keeping the map current costs a few kilobytes a frame and drawing it
+ * is one textured quad. Row y of the pixmap is tile row y; draws flip it.
+ */
+class Minimap implements Disposable {
+    private static final int BYTES_PER_PIXEL = 2;
+    private static final int WALL = 0x666666FF;
+    private static final int FLOOR = 0x262626FF;
+    private static final Color PLAYER = new Color(0, 1, 0, 1);
+    private static final Color PORTAL = new Color(0.3f, 0.3f, 1f, 1f);
+
+    /** Tiles across the corner view, which follows the player on large maps. */
+    static final int CORNER_TILES = 96;
+    static final int CORNER_SCALE = 2;
+
+    private final int mapWidth;
+    private final int mapHeight;
+    private final Pixmap pixmap;
+    private final Texture texture;
+    private final Texture marker;
+
+    Minimap(int mapWidth, int mapHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        pixmap = new Pixmap(mapWidth, mapHeight, Pixmap.Format.RGB565);
+        pixmap.setColor(0, 0, 0, 1);
+        pixmap.fill();
+        texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Nearest);
+
+        Pixmap white = new Pixmap(1, 1, Pixmap.Format.RGB565);
+        white.setColor(1, 1, 1, 1);
+        white.fill();
+        marker = new Texture(white);
+        white.dispose();
+    }
+
+    boolean fits(int width, int height) {
+        return width == mapWidth && height == mapHeight;
+    }
+
+    /** Blanks the map for a new level of the same size. */
+    void reset() {
+        pixmap.setColor(0, 0, 0, 1);
+        pixmap.fill();
+        upload(0, mapHeight - 1);
+    }
+
+    /** Adds the tiles the snapshot newly explored. */
+    void update(WorldSnapshot snapshot) {
+        int count = snapshot.revealedCount;
+        if (count == 0) return;
+
+        int minRow = mapHeight;
+        int maxRow = -1;
+        for (int i = 0; i < count; i++) {
+            int tile = snapshot.revealedTile[i];
+            int x = tile % mapWidth;
+            int y = tile / mapWidth;
+            pixmap.drawPixel(x, y, snapshot.revealedWall[i] ? WALL : FLOOR);
+            if (y < minRow) minRow = y;
+            if (y > maxRow) maxRow = y;
+        }
+        upload(minRow, maxRow);
+    }
+
+    /** Full rows are contiguous in the pixmap, so a band of them uploads straight from its buffer. */
+    private void upload(int firstRow, int lastRow) {
+        ByteBuffer pixels = pixmap.getPixels();
+        pixels.position(firstRow * mapWidth * BYTES_PER_PIXEL);
+        texture.bind();
+        Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+        Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, 0, firstRow, mapWidth, lastRow - firstRow + 1,
+            pixmap.getGLFormat(), pixmap.getGLType(), pixels);
+        pixels.position(0);
+    }
+
+    /** The whole map, scaled to fit the given screen area. */
+    void drawFull(SpriteBatch batch, float x, float y, float width, float height,
+                  int playerTileX, int playerTileY, int portalTileX, int portalTileY) {
+        float scale = Math.min(width / mapWidth, height / mapHeight);
+        float left = x + (width - mapWidth * scale) / 2f;
+        float bottom = y + (height - mapHeight * scale) / 2f;
+        batch.draw(texture, left, bottom, mapWidth * scale, mapHeight * scale,
+            0, 0, mapWidth, mapHeight, false, true);
+        drawMarkers(batch, left, bottom, Math.max(scale, 3f), scale, 0, 0, mapWidth, mapHeight,
+            playerTileX, playerTileY, portalTileX, portalTileY);
+    }
+
+    /** A window of CORNER_TILES around the player, clamped to the map, with its top-right corner at (right, top). */
+    void drawCorner(SpriteBatch batch, float right, float top,
+                    int playerTileX, int playerTileY, int portalTileX, int portalTileY) {
+        int tilesW = Math.min(CORNER_TILES, mapWidth);
+        int tilesH = Math.min(CORNER_TILES, mapHeight);
+        int srcX = Math.max(0, Math.min(playerTileX - tilesW / 2, mapWidth - tilesW));
+        int srcY = Math.max(0, Math.min(playerTileY - tilesH / 2, mapHeight - tilesH));
+        float left = right - tilesW * CORNER_SCALE;
+        float bottom = top - tilesH * CORNER_SCALE;
+
+        batch.setColor(1, 1, 1, 0.8f);
+        batch.draw(texture, left, bottom, tilesW * CORNER_SCALE, tilesH * CORNER_SCALE,
+            srcX, srcY, tilesW, tilesH, false, true);
+        batch.setColor(1, 1, 1, 1);
+        drawMarkers(batch, left, bottom, CORNER_SCALE * 2, CORNER_SCALE, srcX, srcY, tilesW, tilesH,
+            playerTileX, playerTileY, portalTileX, portalTileY);
+    }
+
+    /** Portal coordinates below zero mean there is no portal to show. */
+    private void drawMarkers(SpriteBatch batch, float left, float bottom, float size, float scale,
+                             int srcX, int srcY, int tilesW, int tilesH,
+                             int playerTileX, int playerTileY, int portalTileX, int portalTileY) {
+        boolean portalShown = portalTileX >= srcX && portalTileX < srcX + tilesW
+            && portalTileY >= srcY && portalTileY < srcY + tilesH;
+        if (portalShown) drawMarker(batch, PORTAL, left + (portalTileX - srcX) * scale, bottom + (portalTileY - srcY) * scale, size);
+        drawMarker(batch, PLAYER, left + (playerTileX - srcX) * scale, bottom + (playerTileY - srcY) * scale, size);
+    }
+
+    private void drawMarker(SpriteBatch batch, Color color, float x, float y, float size) {
+        batch.setColor(color);
+        batch.draw(marker, x - size / 2f, y - size / 2f, size, size);
+        batch.setColor(1, 1, 1, 1);
+    }
+
+    @Override
+    public void dispose() {
+        texture.dispose();
+        marker.dispose();
+        pixmap.dispose();
+    }
+}
@@ -0,0 +1,78 @@
+package screens;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+import world.FrameProfiler;
+import world.SimulationThread;
+
+/**
+ * Text table of the profiler's rolling percentiles. The table is rebuilt a
+ * few times a second into one reused builder rather than every frame. With
+ * a simulation thread, the simulation phases and a TICK row come from that
+ * thread's profiler instead.
+ */
+class ProfilerOverlay implements Disposable {
+    private static final int REFRESH_FRAMES = 30;
+
+    private final BitmapFont font = new BitmapFont();
+    private final StringBuilder text = new StringBuilder(1024);
+    private final long[] frames = new long[FrameProfiler.SUMMARY_LENGTH];
+    private final long[] ticks = new long[FrameProfiler.SUMMARY_LENGTH];
+    private int sinceRefresh = REFRESH_FRAMES;
+
+    ProfilerOverlay() {
+        font.setColor(Color.WHITE);
+    }
+
+    /** simulation is null when the world steps on this thread. */
+    void draw(SpriteBatch batch, FrameProfiler profiler, SimulationThread simulation, float x, float y) {
+        if (++sinceRefresh >= REFRESH_FRAMES) {
+            sinceRefresh = 0;
+            profiler.summarize(frames);
+            if (simulation != null) simulation.copyProfile(ticks);
+            rebuild(simulation != null);
+        }
+        font.draw(batch, text, x, y);
+    }
+
+    private void rebuild(boolean threaded) {
+        text.setLength(0);
+        text.append("phase  p50 / p95 / p99 us  (last ").append(FrameProfiler.WINDOW)
+            .append(threaded ? " frames or ticks)\n" : " frames)\n");
+        for (int c = 0; c <= FrameProfiler.FRAME; c++) {
+            long[] source = threaded && FrameProfiler.isSimulationPhase(c) ? ticks : frames;
+            appendRow(FrameProfiler.phaseName(c), source, c);
+        }
+        if (threaded) appendRow("TICK", ticks, FrameProfiler.FRAME);
+        text.append("allocated ");
+        appendAllocation(frames, " B/frame");
+        if (threaded) {
+            text.append(", ");
+            appendAllocation(ticks, " B/tick");
+        }
+    }
+
+    private void appendRow(String name, long[] summary, int column) {
+        int i = column * 3;
+        text.append(name).append("  ")
+            .append(summary[i] / 1000).append(" / ")
+            .append(summary[i + 1] / 1000).append(" / ")
+            .append(summary[i + 2] / 1000).append('\n');
+    }
+
+    private void appendAllocation(long[] summary, String unit) {
+        long allocated = summary[FrameProfiler.SUMMARY_LENGTH - 1];
+        if (allocated < 0) {
+            text.append("n/a");
+        } else {
+            text.append(allocated).append(unit);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        font.dispose();
+    }
+}
@@ -0,0 +1,141 @@
+package screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import maps.DungeonGenerator;
+import world.WorldSnapshot;
+
+/**
+ * Explored tiles baked into off-screen pages of PAGE_TILES x PAGE_TILES tiles.
+ * Tiles never change once explored, so each frame only the newly explored
+ * ones are drawn into their page, and the layer is drawn as one textured
+ * quad per page that overlaps the view.
+ */
+class TileLayerCache implements Disposable {
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
+    static final int PAGE_TILES = 64;
+
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int pagesX;
+    private final int pagesY;
+    private final FrameBuffer[] pages;
+    private final boolean[] dirty;
+    private final Matrix4 pageProjection = new Matrix4();
+
+    TileLayerCache(int mapWidth, int mapHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        pagesX = (mapWidth + PAGE_TILES - 1) / PAGE_TILES;
+        pagesY = (mapHeight + PAGE_TILES - 1) / PAGE_TILES;
+        pages = new FrameBuffer[pagesX * pagesY];
+        dirty = new boolean[pages.length];
+    }
+
+    /** Draws the tiles the snapshot newly explored into their pages. */
+    void bake(WorldSnapshot snapshot, ShapeRenderer shapeRenderer) {
+        int count = snapshot.revealedCount;
+        if (count == 0) return;
+
+        for (int i = 0; i < count; i++) {
+            dirty[pageOf(snapshot.revealedTile[i])] = true;
+        }
+
+        for (int page = 0; page < pages.length; page++) {
+            if (!dirty[page]) continue;
+            dirty[page] = false;
+
+            FrameBuffer fbo = pageBuffer(page);
+            int originX = (page % pagesX) * PAGE_TILES * TILE_SIZE;
+            int originY = (page / pagesX) * PAGE_TILES * TILE_SIZE;
+            pageProjection.setToOrtho2D(originX, originY, fbo.getWidth(), fbo.getHeight());
+
+            fbo.begin();
+            shapeRenderer.setProjectionMatrix(pageProjection);
+            shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+            for (int i = 0; i < count; i++) {
+                int tile = snapshot.revealedTile[i];
+                if (pageOf(tile) != page) continue;
+                int x = tile % mapWidth;
+                int y = tile / mapWidth;
+                shapeRenderer.setColor(snapshot.revealedWall[i] ? 0.4f : 0.1f, 0.1f, 0.1f, 1);
+                shapeRenderer.rect(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            }
+            shapeRenderer.end();
+            fbo.end();
+        }
+    }
+
+    boolean fits(int width, int height) {
+        return width == mapWidth && height == mapHeight;
+    }
+
+    /** Blanks the layer for a new level of the same size, keeping the pages already allocated. */
+    void reset() {
+        for (int page = 0; page < pages.length; page++) {
+            dirty[page] = false;
+            if (pages[page] != null) clear(pages[page]);
+        }
+    }
+
+    /** Draws the pages overlapping the given world-space rectangle. */
+    void draw(SpriteBatch batch, float left, float bottom, float right, float top) {
+        int pageSize = PAGE_TILES * TILE_SIZE;
+        int minPageX = Math.max(0, (int) Math.floor(left / pageSize));
+        int maxPageX = Math.min(pagesX - 1, (int) Math.floor(right / pageSize));
+        int minPageY = Math.max(0, (int) Math.floor(bottom / pageSize));
+        int maxPageY = Math.min(pagesY - 1, (int) Math.floor(top / pageSize));
+        for (int py = minPageY; py <= maxPageY; py++) {
+            for (int px = minPageX; px <= maxPageX; px++) {
+                FrameBuffer fbo = pages[py * pagesX + px];
+                if (fbo == null) continue;
+                Texture texture = fbo.getColorBufferTexture();
+                batch.draw(texture, px * pageSize, py * pageSize, fbo.getWidth(), fbo.getHeight(),
+                    0, 0, fbo.getWidth(), fbo.getHeight(), false, true);
+            }
+        }
+    }
+
+    private int pageOf(int tile) {
+        int x = tile % mapWidth;
+        int y = tile / mapWidth;
+        return (y / PAGE_TILES) * pagesX + x / PAGE_TILES;
+    }
+
+    private FrameBuffer pageBuffer(int page) {
+        FrameBuffer fbo = pages[page];
+        if (fbo != null) return fbo;
+
+        int tilesW = Math.min(PAGE_TILES, mapWidth - (page % pagesX) * PAGE_TILES);
+        int tilesH = Math.min(PAGE_TILES, mapHeight - (page / pagesX) * PAGE_TILES);
+        fbo = new FrameBuffer(Pixmap.Format.RGB565, tilesW * TILE_SIZE, tilesH * TILE_SIZE, false);
+        fbo.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        clear(fbo);
+        pages[page] = fbo;
+        return fbo;
+    }
+
+    private static void clear(FrameBuffer fbo) {
+        fbo.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        fbo.end();
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] != null) {
+                pages[i].dispose();
+                pages[i] = null;
+            }
+        }
+    }
+}
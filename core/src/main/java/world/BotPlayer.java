@@ -0,0 +1,296 @@
+package world;
+
+import com.badlogic.gdx.utils.IntArray;
+import entities.EnemyStore;
+import entities.EnemySystem;
+import entities.MainCharacterTypes.AttackProfile;
+import entities.Player;
+import maps.DungeonGenerator;
+import maps.FieldOfView;
+import maps.Portal;
+import maps.TileSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A scripted player for soak runs. Each tick it fights the nearest visible
+ * enemy in reach; otherwise it walks to the portal once it has been seen,
+ * or else to the nearest unexplored floor tile. A level that is still not
+ * done after EXPLORE_TICKS is too big to explore tile by tile (streamed
+ * dungeons), so from then on the bot heads for the portal, seen or not.
+ *
+ * Paths come from a breadth-first search over a window of the map around
+ * the player whose buffers are reused, and are searched again every few
+ * ticks, when the target has been explored, or when the bot gets stuck.
+ *
+ * Moves are along one axis at a time, because a diagonal step that clips a
+ * wall corner is rejected as a whole.
+ */
+public class BotPlayer {
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
+    /** Half the side, in tiles, of the window searched for a path. */
+    private static final int SEARCH_RADIUS = 96;
+    private static final int SEARCH_SIDE = 2 * SEARCH_RADIUS + 1;
+    private static final int REPATH_TICKS = 30;
+    private static final int EXPLORE_TICKS = 60 * 60;
+    private static final int STUCK_TICKS = 20;
+    private static final int WANDER_TICKS = 12;
+    private static final float ENGAGE_DISTANCE = 6 * TILE_SIZE;
+    /** How close, in pixels, the player's center has to get to a waypoint. */
+    private static final float DEADZONE = 1.5f;
+    private static final int[] DIRECTIONS = {PlayerInput.UP, PlayerInput.DOWN, PlayerInput.LEFT, PlayerInput.RIGHT};
+
+    private final Random random;
+    private final int[] visited = new int[SEARCH_SIDE * SEARCH_SIDE];
+    private final int[] cameFrom = new int[SEARCH_SIDE * SEARCH_SIDE];
+    private final int[] queue = new int[SEARCH_SIDE * SEARCH_SIDE];
+    private final int[] path = new int[SEARCH_SIDE * SEARCH_SIDE];
+    private final IntArray nearby = new IntArray();
+    private int stamp;
+
+    private World world;
+    private int originX, originY;
+    private int pathLength, pathIndex;
+    private int goalX, goalY;
+    private boolean exploring;
+    private int ticksSinceSearch;
+    private int ticksOnLevel;
+    private float lastX, lastY;
+    private boolean moved;
+    private int stuckTicks;
+    private int wanderTicks;
+    private int wanderBits;
+
+    public BotPlayer(long seed) {
+        random = new Random(seed);
+    }
+
+    /** Fills input with this tick's move and attack for the player of world. */
+    public void think(World world, PlayerInput input) {
+        input.clear();
+        if (world != this.world) reset(world);
+        Player player = world.getPlayer();
+        if (player.isDead() || world.isLevelCompleted()) return;
+
+        ticksOnLevel++;
+        float cx = player.centerX();
+        float cy = player.centerY();
+        trackProgress(cx, cy);
+
+        if (wanderTicks > 0) {
+            wanderTicks--;
+            input.setBits(wanderBits);
+        } else if (!fight(player, input, cx, cy)) {
+            walk(input, cx, cy);
+        }
+        moved = input.up || input.down || input.left || input.right;
+    }
+
+    private void reset(World next) {
+        world = next;
+        pathLength = 0;
+        pathIndex = 0;
+        ticksSinceSearch = 0;
+        ticksOnLevel = 0;
+        stuckTicks = 0;
+        wanderTicks = 0;
+        moved = false;
+    }
+
+    /** After too many ticks of trying to move without getting anywhere, walks a random way for a moment. */
+    private void trackProgress(float cx, float cy) {
+        if (moved && Math.abs(cx - lastX) < 0.5f && Math.abs(cy - lastY) < 0.5f) {
+            if (++stuckTicks >= STUCK_TICKS) {
+                stuckTicks = 0;
+                wanderTicks = WANDER_TICKS;
+                wanderBits = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+                pathLength = 0;
+            }
+        } else {
+            stuckTicks = 0;
+        }
+        lastX = cx;
+        lastY = cy;
+    }
+
+    /**
+     * Lines up with the nearest visible enemy on the axis it is furthest
+     * along, faces it and attacks once it is in reach. False if there is no
+     * enemy to fight.
+     */
+    private boolean fight(Player player, PlayerInput input, float cx, float cy) {
+        EnemyStore enemies = world.getEnemies();
+        FieldOfView fov = world.getFieldOfView();
+        nearby.clear();
+        world.getEnemyGrid().queryRange(enemies, cx, cy, ENGAGE_DISTANCE, nearby);
+
+        float bestDx = 0f, bestDy = 0f;
+        float best = Float.MAX_VALUE;
+        for (int k = 0; k < nearby.size; k++) {
+            int i = enemies.index(nearby.get(k));
+            float ex = enemies.x[i] + EnemySystem.SIZE / 2f;
+            float ey = enemies.y[i] + EnemySystem.SIZE / 2f;
+            if (!fov.isVisible((int) (ex / TILE_SIZE), (int) (ey / TILE_SIZE))) continue;
+            float dx = ex - cx, dy = ey - cy;
+            float d = dx * dx + dy * dy;
+            if (d < best) {
+                best = d;
+                bestDx = dx;
+                bestDy = dy;
+            }
+        }
+        if (best == Float.MAX_VALUE) return false;
+
+        AttackProfile profile = player.getPlayerClass().getAttackProfile();
+        boolean melee = profile.kind == AttackProfile.Kind.MELEE;
+        float reach = melee
+            ? profile.offset + profile.length + EnemySystem.SIZE / 2f
+            : profile.offset + player.getPlayerClass().getAttackRange() * 0.9f;
+        float align = (melee ? profile.thickness : profile.size) / 2f + EnemySystem.SIZE / 2f - 1f;
+
+        boolean alongX = Math.abs(bestDx) >= Math.abs(bestDy);
+        float along = alongX ? bestDx : bestDy;
+        float across = alongX ? bestDy : bestDx;
+        if (Math.abs(across) > align) {
+            press(input, !alongX, across);
+            return true;
+        }
+        boolean inReach = Math.abs(along) <= reach;
+        // Facing only turns by moving, so step towards the enemy unless already facing it in reach.
+        if (!inReach || !facing(player, alongX, along)) press(input, alongX, along);
+        input.attack = inReach;
+        return true;
+    }
+
+    private void walk(PlayerInput input, float cx, float cy) {
+        ticksSinceSearch++;
+        boolean goalExplored = exploring && world.isExplored(goalX, goalY);
+        if (pathIndex >= pathLength || ticksSinceSearch >= REPATH_TICKS || goalExplored) {
+            search(cx, cy);
+            ticksSinceSearch = 0;
+            if (pathLength == 0) {
+                wanderTicks = WANDER_TICKS;
+                wanderBits = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+                return;
+            }
+        }
+
+        while (pathIndex < pathLength) {
+            int tile = path[pathIndex];
+            float dx = (originX + tile % SEARCH_SIDE) * TILE_SIZE + TILE_SIZE / 2f - cx;
+            float dy = (originY + tile / SEARCH_SIDE) * TILE_SIZE + TILE_SIZE / 2f - cy;
+            boolean farX = Math.abs(dx) > DEADZONE;
+            boolean farY = Math.abs(dy) > DEADZONE;
+            if (!farX && !farY) {
+                pathIndex++;
+                continue;
+            }
+            if (farX && farY) {
+                boolean alongX = Math.abs(dx) < Math.abs(dy);
+                press(input, alongX, alongX ? dx : dy);
+            } else {
+                press(input, farX, farX ? dx : dy);
+            }
+            return;
+        }
+    }
+
+    private static boolean facing(Player player, boolean alongX, float amount) {
+        float target = alongX ? (amount > 0f ? 0f : 180f) : (amount > 0f ? 90f : -90f);
+        float diff = Math.abs(player.facingAngle - target);
+        return Math.min(diff, 360f - diff) < 1f;
+    }
+
+    private static void press(PlayerInput input, boolean alongX, float amount) {
+        if (alongX) {
+            input.right = amount > 0f;
+            input.left = amount < 0f;
+        } else {
+            input.up = amount > 0f;
+            input.down = amount < 0f;
+        }
+    }
+
+    /**
+     * Breadth-first search from the player's tile over the window around it,
+     * for the portal tile if the bot is heading there, otherwise for the
+     * nearest unexplored walkable tile. A portal outside the window is
+     * approached through the reachable tile closest to it. Leaves the path,
+     * start tile included, in path[0, pathLength).
+     */
+    private void search(float cx, float cy) {
+        pathLength = 0;
+        pathIndex = 0;
+        TileSource map = world.getMap();
+        int startX = (int) (cx / TILE_SIZE);
+        int startY = (int) (cy / TILE_SIZE);
+        originX = startX - SEARCH_RADIUS;
+        originY = startY - SEARCH_RADIUS;
+
+        Portal portal = world.getPortal();
+        exploring = portal == null || !world.isPortalDiscovered() && ticksOnLevel < EXPLORE_TICKS;
+        int portalX = exploring ? -1 : (int) ((portal.getX() + portal.getSize() / 2f) / TILE_SIZE);
+        int portalY = exploring ? -1 : (int) ((portal.getY() + portal.getSize() / 2f) / TILE_SIZE);
+
+        if (++stamp == 0) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+        int start = SEARCH_RADIUS * SEARCH_SIDE + SEARCH_RADIUS;
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        visited[start] = stamp;
+        cameFrom[start] = -1;
+        int closest = start;
+        long closestDistance = Long.MAX_VALUE;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int lx = cell % SEARCH_SIDE;
+            int ly = cell / SEARCH_SIDE;
+            int x = originX + lx;
+            int y = originY + ly;
+            boolean goal = exploring ? !world.isExplored(x, y) : x == portalX && y == portalY;
+            if (goal) {
+                goalX = x;
+                goalY = y;
+                tracePath(cell);
+                return;
+            }
+            if (!exploring) {
+                long dx = portalX - x, dy = portalY - y;
+                if (dx * dx + dy * dy < closestDistance) {
+                    closestDistance = dx * dx + dy * dy;
+                    closest = cell;
+                }
+            }
+            if (lx > 0) tail = visit(map, cell, cell - 1, x - 1, y, tail);
+            if (lx < SEARCH_SIDE - 1) tail = visit(map, cell, cell + 1, x + 1, y, tail);
+            if (ly > 0) tail = visit(map, cell, cell - SEARCH_SIDE, x, y - 1, tail);
+            if (ly < SEARCH_SIDE - 1) tail = visit(map, cell, cell + SEARCH_SIDE, x, y + 1, tail);
+        }
+        if (closest != start) tracePath(closest);
+    }
+
+    private int visit(TileSource map, int from, int cell, int x, int y, int tail) {
+        if (visited[cell] == stamp || !map.isWalkable(x, y)) return tail;
+        visited[cell] = stamp;
+        cameFrom[cell] = from;
+        queue[tail] = cell;
+        return tail + 1;
+    }
+
+    private void tracePath(int goal) {
+        int length = 0;
+        for (int cell = goal; cell >= 0; cell = cameFrom[cell]) {
+            path[length++] = cell;
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int t = path[i];
+            path[i] = path[j];
+            path[j] = t;
+        }
+        pathLength = length;
+    }
+}
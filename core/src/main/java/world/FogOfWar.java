@@ -0,0 +1,94 @@
+package world;
+
+import maps.FieldOfView;
+
+import java.util.Arrays;
+
+/**
+ * Explored-tile mask packed one bit per tile in row-major order. Tiles are
+ * explored by seeing them, and tiles that flip to explored are collected in a
+ * change set that renderers consume and then clear.
+ */
+public class FogOfWar {
+    private final int width;
+    private final int height;
+    private final long[] bits;
+
+    private int[] revealed = new int[256];
+    private int revealedCount;
+
+    public FogOfWar(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bits = new long[(int) (((long) width * height + 63) >>> 6)];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isExplored(int x, int y) {
+        int i = y * width + x;
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** Marks every tile in the field of view explored, recording the ones that were not. */
+    public void reveal(FieldOfView fov) {
+        for (int k = 0, n = fov.getVisibleCount(); k < n; k++) {
+            int x = fov.getVisibleX(k);
+            int y = fov.getVisibleY(k);
+            if (x < 0 || y < 0 || x >= width || y >= height) continue;
+            int i = y * width + x;
+            long bit = 1L << i;
+            if ((bits[i >>> 6] & bit) != 0) continue;
+            bits[i >>> 6] |= bit;
+            addRevealed(i);
+        }
+    }
+
+    /** Marks tiles first..last (as y * width + x, inclusive) explored, a word at a time. */
+    public void revealRange(int first, int last) {
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) mask &= -1L << first;
+            if (w == lastWord) mask &= -1L >>> (63 - (last & 63));
+            long fresh = mask & ~bits[w];
+            if (fresh == 0) continue;
+            bits[w] |= fresh;
+            while (fresh != 0) {
+                addRevealed((w << 6) + Long.numberOfTrailingZeros(fresh));
+                fresh &= fresh - 1;
+            }
+        }
+    }
+
+    private void addRevealed(int tile) {
+        if (revealedCount == revealed.length) {
+            revealed = Arrays.copyOf(revealed, revealed.length * 2);
+        }
+        revealed[revealedCount++] = tile;
+    }
+
+    /** Tiles (as y * width + x) explored since the last {@link #clearRevealed()}. */
+    public int getRevealedCount() {
+        return revealedCount;
+    }
+
+    public int getRevealed(int i) {
+        return revealed[i];
+    }
+
+    public void clearRevealed() {
+        revealedCount = 0;
+    }
+
+    public long[] getBits() {
+        return bits;
+    }
+}
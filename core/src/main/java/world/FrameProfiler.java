@@ -0,0 +1,179 @@
+package world;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Per-phase frame timings kept in a ring of the last HISTORY frames. A phase
+ * may be entered several times per frame (one simulation phase per tick);
+ * its times are summed. While disabled, every call is a single branch.
+ *
+ * Enabling and disabling take effect at the next {@link #beginFrame()}, so a
+ * toggle in the middle of a frame never records half a phase. Any thread
+ * may toggle; everything else belongs to the thread running the frames,
+ * which hands other threads a {@link #summarize} copy. Allocation is
+ * counted for the thread that called beginFrame.
+ */
+public class FrameProfiler {
+    public enum Phase { INPUT, PLAYER, EXPLORE, FLOW, ENEMIES, PROJECTILES, TILE_BAKE, TILE_DRAW, ENTITY_DRAW, HUD }
+
+    public static final int HISTORY = 3600;
+    public static final int WINDOW = 240;
+
+    private static final Phase[] PHASES = Phase.values();
+    /** Column index of the whole-frame time, after the phases. */
+    public static final int FRAME = PHASES.length;
+    private static final float[] SUMMARY_PERCENTILES = {50, 95, 99};
+    /** Values written by {@link #summarize}. */
+    public static final int SUMMARY_LENGTH = (FRAME + 1) * SUMMARY_PERCENTILES.length + 1;
+
+    private final long[][] samples = new long[PHASES.length + 1][HISTORY];
+    private final long[] allocated = new long[HISTORY];
+    private final long[] current = new long[PHASES.length];
+    private final long[] started = new long[PHASES.length];
+    private final long[] scratch = new long[WINDOW];
+
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+    private long threadId;
+
+    private boolean enabled;
+    private volatile boolean pendingEnabled;
+    private boolean inFrame;
+    private long frameStart;
+    private long allocationStart;
+    private int frames;
+
+    public boolean isEnabled() {
+        return pendingEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        pendingEnabled = enabled;
+    }
+
+    public void beginFrame() {
+        enabled = pendingEnabled;
+        inFrame = enabled;
+        if (!enabled) return;
+        Arrays.fill(current, 0L);
+        threadId = Thread.currentThread().getId();
+        allocationStart = allocatedBytes();
+        frameStart = System.nanoTime();
+    }
+
+    public void begin(Phase phase) {
+        if (!inFrame) return;
+        started[phase.ordinal()] = System.nanoTime();
+    }
+
+    public void end(Phase phase) {
+        if (!inFrame) return;
+        current[phase.ordinal()] += System.nanoTime() - started[phase.ordinal()];
+    }
+
+    public void endFrame() {
+        if (!inFrame) return;
+        inFrame = false;
+        int slot = frames % HISTORY;
+        for (int p = 0; p < PHASES.length; p++) {
+            samples[p][slot] = current[p];
+        }
+        samples[FRAME][slot] = System.nanoTime() - frameStart;
+        allocated[slot] = allocationStart < 0 ? -1 : allocatedBytes() - allocationStart;
+        frames++;
+    }
+
+    public int getRecordedFrames() {
+        return Math.min(frames, HISTORY);
+    }
+
+    /** Percentile (0-100) in nanoseconds of a phase, or of {@link #FRAME}, over the last WINDOW frames. */
+    public long percentile(int column, float percent) {
+        return pick(sortWindow(column), percent);
+    }
+
+    /**
+     * Fills out with p50, p95 and p99 of every column, column by column,
+     * followed by {@link #getLastFrameAllocation()}.
+     */
+    public void summarize(long[] out) {
+        int i = 0;
+        for (int c = 0; c <= FRAME; c++) {
+            int n = sortWindow(c);
+            for (float percent : SUMMARY_PERCENTILES) out[i++] = pick(n, percent);
+        }
+        out[i] = getLastFrameAllocation();
+    }
+
+    /** True for the phases {@link World#step} records. */
+    public static boolean isSimulationPhase(int column) {
+        return column >= Phase.PLAYER.ordinal() && column <= Phase.PROJECTILES.ordinal();
+    }
+
+    /** Sorts the column's last WINDOW samples into scratch; returns how many there are. */
+    private int sortWindow(int column) {
+        int n = Math.min(frames, WINDOW);
+        for (int k = 0; k < n; k++) {
+            scratch[k] = samples[column][Math.floorMod(frames - 1 - k, HISTORY)];
+        }
+        Arrays.sort(scratch, 0, n);
+        return n;
+    }
+
+    private long pick(int n, float percent) {
+        return n == 0 ? 0 : scratch[Math.min(n - 1, (int) (percent / 100f * n))];
+    }
+
+    /** Bytes the profiled thread allocated during the last frame, or -1 if the JVM cannot tell. */
+    public long getLastFrameAllocation() {
+        return frames == 0 ? 0 : allocated[(frames - 1) % HISTORY];
+    }
+
+    public static String phaseName(int column) {
+        return column == FRAME ? "FRAME" : PHASES[column].name();
+    }
+
+    /** One row per recorded frame, oldest first, times in microseconds. */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("frame");
+        for (int c = 0; c <= FRAME; c++) {
+            out.write(',');
+            out.write(phaseName(c).toLowerCase());
+            out.write("_us");
+        }
+        out.write(",allocated_bytes\n");
+
+        int count = getRecordedFrames();
+        for (int k = 0; k < count; k++) {
+            int frame = frames - count + k;
+            int slot = frame % HISTORY;
+            out.write(Integer.toString(frame));
+            for (int c = 0; c <= FRAME; c++) {
+                out.write(',');
+                out.write(Long.toString(samples[c][slot] / 1000));
+            }
+            out.write(',');
+            out.write(Long.toString(allocated[slot]));
+            out.write('\n');
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(threadId);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) return null;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch (LinkageError | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
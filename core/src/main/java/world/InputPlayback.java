@@ -0,0 +1,103 @@
+package world;
+
+import entities.MainCharacterTypes.PlayerClass;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a log written by {@link InputRecorder} back one tick at a time.
+ * The whole log is read up front, so stepping through it does no I/O.
+ */
+public class InputPlayback {
+    public enum Event { TICK, NEXT_FLOOR, END }
+
+    private final String playerClass;
+    private final long runSeed;
+    private final boolean chunked;
+    private final byte[] records;
+
+    private int position;
+    private int runBits;
+    private long runLeft;
+    private long expectedTicks = -1;
+    private long expectedChecksum;
+
+    public InputPlayback(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != InputRecorder.MAGIC) throw new IOException("Not an input recording");
+        int version = in.readUnsignedByte();
+        if (version != InputRecorder.VERSION) throw new IOException("Unsupported recording version " + version);
+        playerClass = in.readUTF();
+        runSeed = in.readLong();
+        chunked = in.readBoolean();
+
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        int n;
+        while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += n;
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        records = Arrays.copyOf(buffer, length);
+    }
+
+    public PlayerClass createPlayerClass() {
+        return PlayerClass.forName(playerClass);
+    }
+
+    public long getRunSeed() {
+        return runSeed;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    /** Ticks the recording ended at, or -1 if it was cut off before its END record. */
+    public long getExpectedTicks() {
+        return expectedTicks;
+    }
+
+    public long getExpectedChecksum() {
+        return expectedChecksum;
+    }
+
+    /**
+     * Advances by one event. For TICK the input is set to that tick's state;
+     * NEXT_FLOOR means the next tick runs on the following floor.
+     */
+    public Event next(PlayerInput input) throws IOException {
+        if (runLeft == 0) {
+            if (position >= records.length) return Event.END;
+            int tag = records[position++] & 0xFF;
+            if (tag == InputRecorder.TAG_FLOOR) return Event.NEXT_FLOOR;
+            if (tag == InputRecorder.TAG_END) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(records, position, 16));
+                expectedTicks = in.readLong();
+                expectedChecksum = in.readLong();
+                position = records.length;
+                return Event.END;
+            }
+            runBits = tag;
+            runLeft = readVarLong();
+        }
+        runLeft--;
+        input.setBits(runBits);
+        return Event.TICK;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= records.length) throw new EOFException("Truncated input run");
+            int b = records[position++] & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
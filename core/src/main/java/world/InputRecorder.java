@@ -0,0 +1,78 @@
+package world;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a run as its seed plus the input of every tick, which is all a
+ * {@link World} needs to reach the same state again. Ticks with the same
+ * input are stored as one run: a byte holding the {@link PlayerInput} bits
+ * followed by the run length as a varint.
+ *
+ * Layout: MAGIC, VERSION, player class name, run seed, chunked flag, then
+ * records until END, which carries the final tick count and checksum.
+ */
+public class InputRecorder {
+    static final int MAGIC = 0x47465352;
+    static final int VERSION = 1;
+    static final int TAG_FLOOR = 0x40;
+    static final int TAG_END = 0x41;
+
+    private final DataOutputStream out;
+    private int runBits = -1;
+    private long runLength;
+    private long ticks;
+
+    public InputRecorder(OutputStream stream, String playerClass, long runSeed, boolean chunked) throws IOException {
+        out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(playerClass);
+        out.writeLong(runSeed);
+        out.writeBoolean(chunked);
+    }
+
+    /** Call with the input of each tick, before the tick is stepped. */
+    public void record(PlayerInput input) throws IOException {
+        int bits = input.toBits();
+        if (bits != runBits) {
+            flushRun();
+            runBits = bits;
+        }
+        runLength++;
+        ticks++;
+    }
+
+    /** The next tick is the first of the following floor. */
+    public void nextFloor() throws IOException {
+        flushRun();
+        out.writeByte(TAG_FLOOR);
+    }
+
+    /** Ends the log with the state reached after the last recorded tick, then closes the stream. */
+    public void finish(long checksum) throws IOException {
+        flushRun();
+        out.writeByte(TAG_END);
+        out.writeLong(ticks);
+        out.writeLong(checksum);
+        out.close();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void flushRun() throws IOException {
+        if (runLength == 0) return;
+        out.writeByte(runBits);
+        long n = runLength;
+        while ((n & ~0x7FL) != 0) {
+            out.writeByte((int) ((n & 0x7F) | 0x80));
+            n >>>= 7;
+        }
+        out.writeByte((int) n);
+        runLength = 0;
+        runBits = -1;
+    }
+}
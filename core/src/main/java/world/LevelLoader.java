@@ -0,0 +1,81 @@
+package world;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the next level on a background thread while the current one is
+ * played, so moving to it only has to pick up a finished {@link World}.
+ * At most one level is prepared at a time.
+ */
+public class LevelLoader {
+    private final ExecutorService worker;
+
+    private World ready;
+    private RuntimeException failure;
+    private boolean disposed;
+
+    public LevelLoader() {
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "level-loader");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /** Starts building a level; any level prepared earlier and not yet taken is dropped. */
+    public void prepare(Callable<World> factory) {
+        synchronized (this) {
+            if (ready != null) {
+                ready.dispose();
+                ready = null;
+            }
+        }
+        worker.execute(() -> build(factory));
+    }
+
+    private void build(Callable<World> factory) {
+        World world;
+        try {
+            world = factory.call();
+        } catch (Exception e) {
+            synchronized (this) {
+                failure = new IllegalStateException("Level generation failed", e);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (disposed) {
+                world.dispose();
+                return;
+            }
+            if (ready != null) ready.dispose();
+            ready = world;
+        }
+    }
+
+    /** The prepared level, or null while it is still being built. */
+    public synchronized World poll() {
+        if (failure != null) {
+            RuntimeException e = failure;
+            failure = null;
+            throw e;
+        }
+        World world = ready;
+        ready = null;
+        return world;
+    }
+
+    public void dispose() {
+        synchronized (this) {
+            disposed = true;
+            if (ready != null) {
+                ready.dispose();
+                ready = null;
+            }
+        }
+        worker.shutdownNow();
+    }
+}
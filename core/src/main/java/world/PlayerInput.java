@@ -0,0 +1,29 @@
+package world;
+
+public class PlayerInput {
+    public static final int UP = 1;
+    public static final int DOWN = 2;
+    public static final int LEFT = 4;
+    public static final int RIGHT = 8;
+    public static final int ATTACK = 16;
+
+    public boolean up, down, left, right;
+    public boolean attack;
+
+    public int toBits() {
+        return (up ? UP : 0) | (down ? DOWN : 0) | (left ? LEFT : 0) | (right ? RIGHT : 0) | (attack ? ATTACK : 0);
+    }
+
+    public void setBits(int bits) {
+        up = (bits & UP) != 0;
+        down = (bits & DOWN) != 0;
+        left = (bits & LEFT) != 0;
+        right = (bits & RIGHT) != 0;
+        attack = (bits & ATTACK) != 0;
+    }
+
+    public void clear() {
+        up = down = left = right = false;
+        attack = false;
+    }
+}
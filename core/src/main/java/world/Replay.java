@@ -0,0 +1,77 @@
+package world;
+
+import entities.MainCharacterTypes.PlayerClass;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a recorded game without rendering, as fast as the simulation allows,
+ * and checks that it ends in the recorded state. Floors are built on the
+ * calling thread; only time spent stepping counts towards the tick rate.
+ */
+public final class Replay {
+    private Replay() {}
+
+    public static final class Result {
+        public final long ticks;
+        public final int floors;
+        public final long stepNanos;
+        public final long checksum;
+        public final long expectedTicks;
+        public final long expectedChecksum;
+
+        Result(long ticks, int floors, long stepNanos, long checksum, long expectedTicks, long expectedChecksum) {
+            this.ticks = ticks;
+            this.floors = floors;
+            this.stepNanos = stepNanos;
+            this.checksum = checksum;
+            this.expectedTicks = expectedTicks;
+            this.expectedChecksum = expectedChecksum;
+        }
+
+        public boolean matches() {
+            return ticks == expectedTicks && checksum == expectedChecksum;
+        }
+
+        public double ticksPerSecond() {
+            return stepNanos == 0 ? 0 : ticks * 1e9 / stepNanos;
+        }
+    }
+
+    public static Result run(InputPlayback playback, ForkJoinPool pool) throws IOException {
+        PlayerClass playerClass = playback.createPlayerClass();
+        int floor = 1;
+        World world = createFloor(playback, playerClass, floor, pool);
+        PlayerInput input = new PlayerInput();
+        long ticks = 0;
+        long stepNanos = 0;
+        try {
+            while (true) {
+                InputPlayback.Event event = playback.next(input);
+                if (event == InputPlayback.Event.END) break;
+                if (event == InputPlayback.Event.NEXT_FLOOR) {
+                    World next = createFloor(playback, playerClass, ++floor, pool);
+                    next.carryOver(world);
+                    world.dispose();
+                    world = next;
+                    continue;
+                }
+                long start = System.nanoTime();
+                world.step(input);
+                stepNanos += System.nanoTime() - start;
+                ticks++;
+            }
+            return new Result(ticks, floor, stepNanos, world.checksum(),
+                playback.getExpectedTicks(), playback.getExpectedChecksum());
+        } finally {
+            world.dispose();
+        }
+    }
+
+    private static World createFloor(InputPlayback playback, PlayerClass playerClass, int floor, ForkJoinPool pool) {
+        World world = World.createFloor(playerClass, playback.getRunSeed(), floor, playback.isChunked(), true);
+        world.setEnemyUpdatePool(pool);
+        return world;
+    }
+}
@@ -0,0 +1,438 @@
+package world;
+
+import entities.EnemyStore;
+import entities.MainCharacterTypes.PlayerClass;
+import entities.Player;
+import maps.ChunkedDungeon;
+import maps.Portal;
+import maps.TileMap;
+import maps.TileSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Binary save of a level in progress.
+ *
+ * Saving is split in two. {@link #capture} copies the state that keeps
+ * changing (fog, enemies, player) on the game thread; it is a few array
+ * copies. Encoding and writing happen later, usually on the save thread
+ * through {@link #writeAsync}. The tile map is not copied because tiles
+ * never change once a level is generated. Projectiles in flight and
+ * spawn waves that have not arrived yet are not saved.
+ *
+ * Layout, big-endian: MAGIC, VERSION, run (player class, run seed, floor),
+ * map (tiles as (value, length) runs, or the chunked dungeon's seed and
+ * size), explored mask as alternating unexplored/explored run lengths,
+ * player, level state, enemies as fixed-size records, and a CRC32 of
+ * everything before it. Lengths are varints.
+ */
+public final class SaveGame {
+    private static final int MAGIC = 0x47465353;
+    private static final int VERSION = 1;
+    private static final byte MAP_TILES = 0;
+    private static final byte MAP_CHUNKED = 1;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "save-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SaveGame() {}
+
+    /** Immutable copy of a level, safe to encode on another thread. */
+    public static final class Snapshot {
+        final String playerClass;
+        final long runSeed;
+        final int floor;
+        final long levelSeed;
+        final TileSource map;
+        final int width, height;
+        final long[] explored;
+        final float playerX, playerY, playerFacing, playerAttackCooldown;
+        final int playerHealth;
+        final long tick;
+        final World.Outcome outcome;
+        final boolean portalDiscovered, levelCompleted;
+        final float deathTimer, teleportTimer;
+        final Portal portal;
+        final int enemyCount;
+        final float[] enemyX, enemyY, enemyAttackTimer, enemyPatrolDirX, enemyPatrolDirY, enemyPatrolTimer, enemyFacing;
+        final int[] enemyHealth;
+        final byte[] enemyBehavior;
+        final long[] enemyRng;
+
+        Snapshot(World world, long runSeed, int floor) {
+            Player player = world.getPlayer();
+            EnemyStore enemies = world.getEnemies();
+            int n = enemies.size();
+            this.playerClass = player.getPlayerClass().getClassName();
+            this.runSeed = runSeed;
+            this.floor = floor;
+            this.levelSeed = world.getSeed();
+            this.map = world.getMap();
+            this.width = world.getWidth();
+            this.height = world.getHeight();
+            this.explored = world.getFog().getBits().clone();
+            this.playerX = player.x;
+            this.playerY = player.y;
+            this.playerFacing = player.facingAngle;
+            this.playerAttackCooldown = player.attackCooldown;
+            this.playerHealth = player.health;
+            this.tick = world.getTick();
+            this.outcome = world.getOutcome();
+            this.portalDiscovered = world.isPortalDiscovered();
+            this.levelCompleted = world.isLevelCompleted();
+            this.deathTimer = world.getDeathTimer();
+            this.teleportTimer = world.getTeleportTimer();
+            this.portal = world.getPortal();
+            this.enemyCount = n;
+            this.enemyX = Arrays.copyOf(enemies.x, n);
+            this.enemyY = Arrays.copyOf(enemies.y, n);
+            this.enemyAttackTimer = Arrays.copyOf(enemies.attackTimer, n);
+            this.enemyPatrolDirX = Arrays.copyOf(enemies.patrolDirX, n);
+            this.enemyPatrolDirY = Arrays.copyOf(enemies.patrolDirY, n);
+            this.enemyPatrolTimer = Arrays.copyOf(enemies.patrolTimer, n);
+            this.enemyFacing = Arrays.copyOf(enemies.facingAngle, n);
+            this.enemyHealth = Arrays.copyOf(enemies.health, n);
+            this.enemyBehavior = Arrays.copyOf(enemies.behavior, n);
+            this.enemyRng = Arrays.copyOf(enemies.rng, n);
+        }
+    }
+
+    /** A level read back from a save, with the run it belongs to. */
+    public static final class Loaded {
+        public final World world;
+        public final long runSeed;
+        public final int floor;
+
+        Loaded(World world, long runSeed, int floor) {
+            this.world = world;
+            this.runSeed = runSeed;
+            this.floor = floor;
+        }
+    }
+
+    public static Snapshot capture(World world, long runSeed, int floor) {
+        return new Snapshot(world, runSeed, floor);
+    }
+
+    /** Encodes and writes the snapshot on the save thread. */
+    public static CompletableFuture<Void> writeAsync(Snapshot snapshot, Path path) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write(snapshot, path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, WRITER);
+    }
+
+    /**
+     * Writes to a temporary file next to the target, forces it to disk and
+     * then moves it into place, so an interrupted save never replaces a good
+     * one. File systems without atomic moves fall back to a plain replace.
+     */
+    public static void write(Snapshot snapshot, Path path) throws IOException {
+        ByteBuffer data = encode(snapshot);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) channel.write(data);
+            channel.force(true);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static ByteBuffer encode(Snapshot s) {
+        Out out = new Out(64 + s.enemyCount * 40);
+        out.putInt(MAGIC);
+        out.putByte(VERSION);
+
+        byte[] className = s.playerClass.getBytes(StandardCharsets.UTF_8);
+        out.putVarInt(className.length);
+        out.putBytes(className);
+        out.putLong(s.runSeed);
+        out.putVarInt(s.floor);
+
+        out.putLong(s.levelSeed);
+        out.putVarInt(s.width);
+        out.putVarInt(s.height);
+        if (s.map instanceof ChunkedDungeon) {
+            ChunkedDungeon dungeon = (ChunkedDungeon) s.map;
+            out.putByte(MAP_CHUNKED);
+            out.putVarInt(dungeon.getChunksX());
+            out.putVarInt(dungeon.getChunksY());
+        } else {
+            out.putByte(MAP_TILES);
+            encodeTiles(((TileMap) s.map).getTiles(), out);
+        }
+        encodeExplored(s.explored, s.width * s.height, out);
+
+        out.putFloat(s.playerX);
+        out.putFloat(s.playerY);
+        out.putFloat(s.playerFacing);
+        out.putFloat(s.playerAttackCooldown);
+        out.putInt(s.playerHealth);
+
+        out.putLong(s.tick);
+        out.putByte(s.outcome.ordinal());
+        out.putByte((s.portalDiscovered ? 1 : 0) | (s.levelCompleted ? 2 : 0) | (s.portal != null ? 4 : 0));
+        out.putFloat(s.deathTimer);
+        out.putFloat(s.teleportTimer);
+        if (s.portal != null) {
+            out.putFloat(s.portal.getX());
+            out.putFloat(s.portal.getY());
+            out.putVarInt(s.portal.getSize());
+        }
+
+        out.putVarInt(s.enemyCount);
+        for (int i = 0; i < s.enemyCount; i++) {
+            out.putFloat(s.enemyX[i]);
+            out.putFloat(s.enemyY[i]);
+            out.putFloat(s.enemyAttackTimer[i]);
+            out.putFloat(s.enemyPatrolDirX[i]);
+            out.putFloat(s.enemyPatrolDirY[i]);
+            out.putFloat(s.enemyPatrolTimer[i]);
+            out.putFloat(s.enemyFacing[i]);
+            out.putLong(s.enemyRng[i]);
+            out.putShort(s.enemyHealth[i]);
+            out.putByte(s.enemyBehavior[i]);
+        }
+
+        ByteBuffer buffer = out.buffer;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        out.putInt((int) crc.getValue());
+        buffer = out.buffer;
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads a save; with reproducible set, a chunked map streams synchronously
+     * as in recorded runs. The file is read onto the heap rather than mapped:
+     * a mapping outlives the channel, and on Windows a mapped file cannot be
+     * replaced by the next save.
+     */
+    public static Loaded load(Path path, boolean reproducible) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Save too large");
+            data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) throw new IOException("Save truncated while reading");
+            }
+        }
+        data.flip();
+        return decode(data, reproducible);
+    }
+
+    public static Loaded decode(ByteBuffer data, boolean reproducible) throws IOException {
+        try {
+            return decodeChecked(data, reproducible);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt save", e);
+        }
+    }
+
+    private static Loaded decodeChecked(ByteBuffer data, boolean reproducible) throws IOException {
+        if (data.remaining() < 9) throw new IOException("Save too short");
+        CRC32 crc = new CRC32();
+        ByteBuffer body = data.duplicate();
+        body.limit(data.limit() - 4);
+        crc.update(body);
+        if ((int) crc.getValue() != data.getInt(data.limit() - 4)) throw new IOException("Save checksum mismatch");
+
+        if (data.getInt() != MAGIC) throw new IOException("Not a save file");
+        int version = data.get() & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported save version " + version);
+
+        byte[] className = new byte[getVarInt(data)];
+        data.get(className);
+        PlayerClass playerClass = PlayerClass.forName(new String(className, StandardCharsets.UTF_8));
+        long runSeed = data.getLong();
+        int floor = getVarInt(data);
+
+        long levelSeed = data.getLong();
+        int width = getVarInt(data);
+        int height = getVarInt(data);
+        TileSource map;
+        byte mapKind = data.get();
+        if (mapKind == MAP_CHUNKED) {
+            int chunksX = getVarInt(data);
+            int chunksY = getVarInt(data);
+            ChunkedDungeon dungeon = new ChunkedDungeon(levelSeed, chunksX, chunksY, World.MAX_RESIDENT_CHUNKS);
+            dungeon.setSynchronous(reproducible);
+            map = dungeon;
+        } else if (mapKind == MAP_TILES) {
+            TileMap tiles = new TileMap(width, height);
+            decodeTiles(data, tiles.getTiles());
+            map = tiles;
+        } else {
+            throw new IOException("Unknown map kind " + mapKind);
+        }
+
+        int enemyCapacity = 16;
+        World world = World.empty(playerClass, map, levelSeed, enemyCapacity);
+        decodeExplored(data, width * height, world.getFog());
+
+        Player player = world.getPlayer();
+        player.x = data.getFloat();
+        player.y = data.getFloat();
+        player.facingAngle = data.getFloat();
+        player.attackCooldown = data.getFloat();
+        player.health = data.getInt();
+
+        long tick = data.getLong();
+        World.Outcome outcome = World.Outcome.values()[data.get()];
+        int flags = data.get();
+        float deathTimer = data.getFloat();
+        float teleportTimer = data.getFloat();
+        Portal portal = null;
+        if ((flags & 4) != 0) {
+            float x = data.getFloat();
+            float y = data.getFloat();
+            portal = new Portal(x, y, getVarInt(data));
+        }
+
+        EnemyStore enemies = world.getEnemies();
+        int enemyCount = getVarInt(data);
+        for (int k = 0; k < enemyCount; k++) {
+            float x = data.getFloat();
+            float y = data.getFloat();
+            int i = enemies.index(enemies.create(x, y));
+            enemies.attackTimer[i] = data.getFloat();
+            enemies.patrolDirX[i] = data.getFloat();
+            enemies.patrolDirY[i] = data.getFloat();
+            enemies.patrolTimer[i] = data.getFloat();
+            enemies.facingAngle[i] = data.getFloat();
+            enemies.rng[i] = data.getLong();
+            enemies.health[i] = data.getShort();
+            enemies.behavior[i] = data.get();
+        }
+
+        world.restored(portal, (flags & 1) != 0, (flags & 2) != 0, deathTimer, teleportTimer, outcome, tick);
+        return new Loaded(world, runSeed, floor);
+    }
+
+    private static void encodeTiles(byte[] tiles, Out out) {
+        int i = 0;
+        while (i < tiles.length) {
+            byte value = tiles[i];
+            int start = i;
+            while (i < tiles.length && tiles[i] == value) i++;
+            out.putByte(value);
+            out.putVarInt(i - start);
+        }
+    }
+
+    private static void decodeTiles(ByteBuffer data, byte[] tiles) throws IOException {
+        int i = 0;
+        while (i < tiles.length) {
+            byte value = data.get();
+            int length = getVarInt(data);
+            if (length <= 0 || length > tiles.length - i) throw new IOException("Bad tile run");
+            Arrays.fill(tiles, i, i + length, value);
+            i += length;
+        }
+    }
+
+    /** Alternating run lengths of unexplored and explored tiles, starting with unexplored. */
+    private static void encodeExplored(long[] bits, int tileCount, Out out) {
+        boolean explored = false;
+        int i = 0;
+        while (i < tileCount) {
+            int next = nextBit(bits, i, !explored, tileCount);
+            out.putVarInt(next - i);
+            i = next;
+            explored = !explored;
+        }
+    }
+
+    private static void decodeExplored(ByteBuffer data, int tileCount, FogOfWar fog) throws IOException {
+        boolean explored = false;
+        int i = 0;
+        while (i < tileCount) {
+            int length = getVarInt(data);
+            if (length < 0 || length > tileCount - i) throw new IOException("Bad explored run");
+            if (explored && length > 0) fog.revealRange(i, i + length - 1);
+            i += length;
+            explored = !explored;
+        }
+    }
+
+    /** Index of the first bit at or after from that equals value, or limit. */
+    private static int nextBit(long[] bits, int from, boolean value, int limit) {
+        int w = from >>> 6;
+        long word = (value ? bits[w] : ~bits[w]) & (-1L << from);
+        while (word == 0) {
+            if (++w >= bits.length) return limit;
+            word = value ? bits[w] : ~bits[w];
+        }
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), limit);
+    }
+
+    private static int getVarInt(ByteBuffer data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = data.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Bad varint");
+    }
+
+    /** Growable big-endian output buffer. */
+    private static final class Out {
+        ByteBuffer buffer;
+
+        Out(int capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, 256));
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() >= bytes) return;
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+
+        void putByte(int v) { ensure(1); buffer.put((byte) v); }
+        void putShort(int v) { ensure(2); buffer.putShort((short) v); }
+        void putInt(int v) { ensure(4); buffer.putInt(v); }
+        void putLong(long v) { ensure(8); buffer.putLong(v); }
+        void putFloat(float v) { ensure(4); buffer.putFloat(v); }
+        void putBytes(byte[] v) { ensure(v.length); buffer.put(v); }
+
+        void putVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buffer.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buffer.put((byte) v);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package world;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps a {@link World} on its own thread at the fixed {@link World#TICK}
+ * rate and publishes a {@link WorldSnapshot} after every tick, so a slow
+ * tick delays neither drawing nor input. While it runs the world belongs
+ * to this thread: anything else that touches it goes through
+ * {@link #runBetweenTicks} or waits for {@link #stop()}.
+ *
+ * Held directions are the latest ones given to {@link #setInput}; an
+ * attack stays pending until a tick takes it, so a press between two
+ * ticks is not lost.
+ *
+ * Each tick is a frame of the thread's own {@link FrameProfiler}, which
+ * should also be the world's; its percentiles are handed over through
+ * {@link #copyProfile} every SUMMARY_TICKS ticks while it is enabled.
+ */
+public class SimulationThread {
+    private static final long TICK_NANOS = (long) (World.TICK * 1e9);
+    /** Further behind than this after a stall, the clock skips ahead instead of running ticks back to back. */
+    private static final long MAX_CATCH_UP_NANOS = 250_000_000L;
+    private static final int SUMMARY_TICKS = 30;
+
+    private final World world;
+    private final SnapshotBuffer snapshots;
+    private final FrameProfiler profiler;
+    private final long[] summary = new long[FrameProfiler.SUMMARY_LENGTH];
+    private final long[] publishedSummary = new long[FrameProfiler.SUMMARY_LENGTH];
+    private int sinceSummary;
+    private final float captureHalfWidth;
+    private final float captureHalfHeight;
+    private final PlayerInput input = new PlayerInput();
+    private final AtomicBoolean attackPending = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile int heldBits;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private Thread thread;
+
+    /** Snapshots copy the enemies within captureHalfWidth by captureHalfHeight of the player. */
+    public SimulationThread(World world, SnapshotBuffer snapshots, FrameProfiler profiler,
+                            float captureHalfWidth, float captureHalfHeight) {
+        this.world = world;
+        this.snapshots = snapshots;
+        this.profiler = profiler;
+        this.captureHalfWidth = captureHalfWidth;
+        this.captureHalfHeight = captureHalfHeight;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops after the tick in progress; the world then belongs to the caller again. Queued tasks run here. */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        runTasks();
+    }
+
+    public void setInput(PlayerInput latest) {
+        heldBits = latest.toBits() & ~PlayerInput.ATTACK;
+        if (latest.attack) attackPending.set(true);
+    }
+
+    /** Runs the task on the simulation thread before its next tick. */
+    public void runBetweenTicks(Runnable task) {
+        tasks.add(task);
+    }
+
+    /** Copies the latest {@link FrameProfiler#summarize} of the ticks into out; zeros until the first. */
+    public void copyProfile(long[] out) {
+        synchronized (publishedSummary) {
+            System.arraycopy(publishedSummary, 0, out, 0, publishedSummary.length);
+        }
+    }
+
+    /** What stopped the thread, or null while it runs or if it was stopped normally. */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                if (now - next > MAX_CATCH_UP_NANOS) next = now;
+
+                runTasks();
+                input.setBits(heldBits);
+                input.attack = attackPending.getAndSet(false);
+                profiler.beginFrame();
+                world.step(input);
+                snapshots.beginWrite().capture(world, captureHalfWidth, captureHalfHeight);
+                snapshots.publish();
+                profiler.endFrame();
+                publishProfile();
+                next += TICK_NANOS;
+            }
+        } catch (Throwable t) {
+            failure = t;
+            running = false;
+        }
+    }
+
+    private void publishProfile() {
+        if (!profiler.isEnabled() || ++sinceSummary < SUMMARY_TICKS) return;
+        sinceSummary = 0;
+        profiler.summarize(summary);
+        synchronized (publishedSummary) {
+            System.arraycopy(summary, 0, publishedSummary, 0, summary.length);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package world;
+
+/**
+ * Hands snapshots from the thread that steps a world to the thread that
+ * draws it. Four snapshots rotate: the one being written, the latest
+ * published one, and the two the reader interpolates between. Neither side
+ * ever waits for the other to finish with a snapshot; a published one the
+ * reader never took is recycled, and its explored tiles move on to the
+ * next one so that none are lost.
+ */
+public class SnapshotBuffer {
+    private WorldSnapshot writing = new WorldSnapshot();
+    private WorldSnapshot ready;
+    private WorldSnapshot spare = new WorldSnapshot();
+    private WorldSnapshot current = new WorldSnapshot();
+    private WorldSnapshot previous = new WorldSnapshot();
+
+    /** The snapshot to capture the next tick into. Writer thread only. */
+    public WorldSnapshot beginWrite() {
+        writing.revealedCount = 0;
+        return writing;
+    }
+
+    /** Makes the snapshot from {@link #beginWrite()} the latest. Writer thread only. */
+    public synchronized void publish() {
+        WorldSnapshot published = writing;
+        if (ready != null) {
+            if (ready.world == published.world) published.keepRevealed(ready);
+            writing = ready;
+        } else {
+            writing = spare;
+            spare = null;
+        }
+        ready = published;
+    }
+
+    /**
+     * Moves the latest published snapshot to current and current to
+     * previous. Returns false, changing nothing, if nothing was published
+     * since the last call. Reader thread only.
+     */
+    public synchronized boolean acquire() {
+        if (ready == null) return false;
+        spare = previous;
+        previous = current;
+        current = ready;
+        ready = null;
+        return true;
+    }
+
+    /** Reader thread only. */
+    public WorldSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * The snapshot the reader took before {@link #getCurrent()}, which is
+     * more than one tick older if published ones were skipped; compare
+     * their ticks. Its world is null or another one if there is none.
+     * Reader thread only.
+     */
+    public WorldSnapshot getPrevious() {
+        return previous;
+    }
+}
@@ -0,0 +1,94 @@
+package world;
+
+import java.util.Arrays;
+
+/**
+ * Queues waves of enemies and spawns them a budgeted number per tick, so a
+ * wave of thousands arrives over a few ticks instead of in one long frame.
+ * Waves are served in the order they were scheduled. Spawn positions come
+ * from the level's {@link maps.WalkableIndex} and the level's spawn stream,
+ * so waves replay identically. In a chunked level the spawn area is the
+ * player's current chunk, so a wave arrives around the player wherever
+ * they went after it was scheduled.
+ */
+public class SpawnDirector {
+    public static final int DEFAULT_BUDGET = 64;
+
+    private final World world;
+    private int budgetPerTick = DEFAULT_BUDGET;
+    private int[] remaining = new int[8];
+    private int[] room = new int[8];
+    private int[] minDistance = new int[8];
+    private int head;
+    private int tail;
+
+    SpawnDirector(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Schedules count enemies in the given room of the level's spawn area
+     * (-1 for anywhere in it), at least minDistance tiles from the player
+     * when they spawn.
+     */
+    public void schedule(int count, int waveRoom, int waveMinDistance) {
+        int rooms = world.getSpawnArea().getRoomCount();
+        if (waveRoom < -1 || waveRoom >= rooms) {
+            throw new IllegalArgumentException("No room " + waveRoom + " in the spawn area, which has " + rooms);
+        }
+        if (count <= 0) return;
+        if (tail == remaining.length) compact();
+        remaining[tail] = count;
+        room[tail] = waveRoom;
+        minDistance[tail] = waveMinDistance;
+        tail++;
+    }
+
+    public void setBudgetPerTick(int budget) {
+        budgetPerTick = Math.max(1, budget);
+    }
+
+    public int getBudgetPerTick() {
+        return budgetPerTick;
+    }
+
+    /** Enemies scheduled but not spawned yet. */
+    public int getPending() {
+        int pending = 0;
+        for (int w = head; w < tail; w++) pending += remaining[w];
+        return pending;
+    }
+
+    public void clear() {
+        head = 0;
+        tail = 0;
+    }
+
+    /** Spawns up to the budget; a wave with no tile left that satisfies it is dropped. */
+    void update() {
+        int budget = budgetPerTick;
+        while (budget > 0 && head < tail) {
+            if (world.spawnEnemy(room[head], minDistance[head])) {
+                budget--;
+                if (--remaining[head] > 0) continue;
+            }
+            head++;
+        }
+        if (head == tail) clear();
+    }
+
+    private void compact() {
+        int live = tail - head;
+        if (head == 0) {
+            remaining = Arrays.copyOf(remaining, live * 2);
+            room = Arrays.copyOf(room, live * 2);
+            minDistance = Arrays.copyOf(minDistance, live * 2);
+        } else {
+            System.arraycopy(remaining, head, remaining, 0, live);
+            System.arraycopy(room, head, room, 0, live);
+            System.arraycopy(minDistance, head, minDistance, 0, live);
+        }
+        head = 0;
+        tail = live;
+    }
+}
@@ -0,0 +1,632 @@
+package world;
+
+import com.badlogic.gdx.utils.IntArray;
+import entities.EnemyGrid;
+import entities.EnemyStore;
+import entities.EnemySystem;
+import entities.EnemyTargets;
+import entities.MainCharacterTypes.AttackProfile;
+import entities.MainCharacterTypes.PlayerClass;
+import entities.Player;
+import entities.ProjectileStore;
+import entities.ProjectileSystem;
+import maps.ChunkedDungeon;
+import maps.DungeonGenerator;
+import maps.FieldOfView;
+import maps.FlowField;
+import maps.Portal;
+import maps.Room;
+import maps.SeedStreams;
+import maps.TileSource;
+import maps.WalkableIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Game state of a single dungeon level, advanced in fixed ticks.
+ * Has no dependency on Gdx, so it can be stepped without a GL context.
+ *
+ * There is always a first player; classic levels take up to MAX_PLAYERS
+ * in all for co-op. Every player has their own view and flow field,
+ * exploration is shared, and the level ends when any player reaches the
+ * portal or when all of them are dead.
+ */
+public class World {
+    public static final float TICK = 1f / 60f;
+    public static final int DEFAULT_ENEMY_COUNT = 5;
+    public static final int MAX_PLAYERS = EnemyTargets.MAX;
+
+    private static final int TILE_SIZE = DungeonGenerator.TILE_SIZE;
+    private static final int PORTAL_SIZE = 20;
+    private static final float DEATH_DELAY = 3.0f;
+    private static final float TELEPORT_DELAY = 0.1f;
+    private static final float ATTACK_BOX_DURATION = 0.15f;
+    private static final int PORTAL_CHUNK_DISTANCE = 3;
+    /** Side of chunked floors; fog, enemy grid and minimap are sized for all of it (see ChunkedDungeon). */
+    private static final int CHUNKS_PER_SIDE = 32;
+    static final int MAX_RESIDENT_CHUNKS = 25;
+
+    public enum Outcome { RUNNING, PLAYER_DIED, LEVEL_COMPLETED }
+
+    private final TileSource map;
+    private final int width;
+    private final int height;
+    private final Player player;
+    private final Player[] players = new Player[MAX_PLAYERS];
+    private final FieldOfView[] views = new FieldOfView[MAX_PLAYERS];
+    private final FlowField[] flowFields = new FlowField[MAX_PLAYERS];
+    private int playerCount;
+    private final PlayerInput[] soloInput = new PlayerInput[1];
+    private final PlayerInput idle = new PlayerInput();
+    private final EnemyTargets targets = new EnemyTargets();
+    private final EnemyStore enemies;
+    private final IntArray nearbyEnemies = new IntArray();
+    private final EnemyGrid enemyGrid;
+    private final ProjectileStore projectiles = new ProjectileStore(64);
+    private final IntArray hitIds = new IntArray();
+    private final IntArray hitDamage = new IntArray();
+    private final Random spawnRandom;
+    private final Random aiSeeds;
+    private final SpawnDirector spawnDirector = new SpawnDirector(this);
+    private WalkableIndex spawnArea;
+    /** Chunk the spawn area covers in a chunked level; it follows the player. */
+    private int spawnChunkX = -1, spawnChunkY = -1;
+    private ForkJoinPool enemyUpdatePool;
+    private FrameProfiler profiler;
+    private Portal portal;
+
+    private final FogOfWar fog;
+    private boolean portalDiscovered = false;
+    private boolean levelCompleted = false;
+    private float deathTimer;
+    private float teleportTimer;
+    private Outcome outcome = Outcome.RUNNING;
+
+    private float attackBoxX, attackBoxY, attackBoxW, attackBoxH;
+    private float showAttackBoxTimer = 0f;
+
+    private final long seed;
+    private long tick;
+
+    public World(PlayerClass playerClass) {
+        this(playerClass, DEFAULT_ENEMY_COUNT);
+    }
+
+    public World(PlayerClass playerClass, int enemyCount) {
+        this(playerClass, new DungeonGenerator(), enemyCount);
+    }
+
+    public World(PlayerClass playerClass, long seed) {
+        this(playerClass, new DungeonGenerator(seed), DEFAULT_ENEMY_COUNT);
+    }
+
+    /** Spawns and enemy AI are seeded from the dungeon's root seed, so the level replays identically. */
+    public World(PlayerClass playerClass, DungeonGenerator dungeon, int enemyCount) {
+        this(playerClass, dungeon.getMap(), dungeon.getSeed(), dungeon.getLastRoom(),
+            dungeon.getWalkableIndex(), enemyCount);
+    }
+
+    /**
+     * Floor {@code floor} (from 1) of the run started from {@code runSeed},
+     * with the default enemy count, either a classic dungeon or a streamed
+     * chunked one. With reproducible set, chunks are streamed synchronously
+     * so that recorded input replays to the same state.
+     */
+    public static World createFloor(PlayerClass playerClass, long runSeed, int floor, boolean chunked, boolean reproducible) {
+        long seed = SeedStreams.level(runSeed, floor - 1);
+        if (!chunked) return new World(playerClass, new DungeonGenerator(seed), DEFAULT_ENEMY_COUNT);
+        ChunkedDungeon dungeon = new ChunkedDungeon(seed, CHUNKS_PER_SIDE, CHUNKS_PER_SIDE, MAX_RESIDENT_CHUNKS);
+        dungeon.setSynchronous(reproducible);
+        return chunked(playerClass, dungeon, DEFAULT_ENEMY_COUNT);
+    }
+
+    /**
+     * Starts in the middle chunk of a streamed dungeon. Only that chunk is
+     * generated up front; the player and enemies spawn inside it and the
+     * portal is placed a few chunks away.
+     */
+    public static World chunked(PlayerClass playerClass, ChunkedDungeon dungeon, int enemyCount) {
+        int startX = dungeon.getChunksX() / 2;
+        int startY = dungeon.getChunksY() / 2;
+        dungeon.loadNow(startX, startY);
+
+        int portalX = Math.min(startX + PORTAL_CHUNK_DISTANCE, dungeon.getChunksX() - 1);
+        ArrayList<Room> rooms = dungeon.roomsOf(portalX, startY);
+        Room portalRoom = rooms.get(rooms.size() - 1);
+
+        WalkableIndex spawnArea = WalkableIndex.build(dungeon, dungeon.roomsOf(startX, startY),
+            startX * ChunkedDungeon.CHUNK_SIZE, startY * ChunkedDungeon.CHUNK_SIZE,
+            ChunkedDungeon.CHUNK_SIZE, ChunkedDungeon.CHUNK_SIZE);
+        return new World(playerClass, dungeon, dungeon.getSeed(), portalRoom, spawnArea, enemyCount);
+    }
+
+    private World(PlayerClass playerClass, TileSource map, long seed, Room portalRoom,
+                  WalkableIndex spawnArea, int enemyCount) {
+        this(playerClass, map, seed, enemyCount);
+        this.spawnArea = spawnArea;
+        placePlayerRandomly();
+        if (map instanceof ChunkedDungeon) {
+            spawnChunkX = playerCenterTileX() / ChunkedDungeon.CHUNK_SIZE;
+            spawnChunkY = playerCenterTileY() / ChunkedDungeon.CHUNK_SIZE;
+        }
+        spawnEnemies(enemyCount);
+        placePortal(portalRoom);
+        map.focus(playerTileX(), playerTileY());
+        updateExplored();
+    }
+
+    /** An empty level on the given map: no enemies or portal, nothing explored. */
+    private World(PlayerClass playerClass, TileSource map, long seed, int enemyCapacity) {
+        this.map = map;
+        this.seed = seed;
+        spawnRandom = new Random(SeedStreams.spawn(seed));
+        aiSeeds = new Random(SeedStreams.ai(seed));
+        width = map.getWidth();
+        height = map.getHeight();
+        fog = new FogOfWar(width, height);
+        enemyGrid = new EnemyGrid(width, height);
+        enemies = new EnemyStore(enemyCapacity);
+        player = new Player(playerClass);
+        players[0] = player;
+        views[0] = new FieldOfView();
+        flowFields[0] = new FlowField();
+        playerCount = 1;
+    }
+
+    /** Starting point for {@link SaveGame}, which fills in the rest and then calls {@link #restored}. */
+    static World empty(PlayerClass playerClass, TileSource map, long seed, int enemyCapacity) {
+        return new World(playerClass, map, seed, enemyCapacity);
+    }
+
+    void restored(Portal portal, boolean portalDiscovered, boolean levelCompleted,
+                  float deathTimer, float teleportTimer, Outcome outcome, long tick) {
+        this.portal = portal;
+        this.portalDiscovered = portalDiscovered;
+        this.levelCompleted = levelCompleted;
+        this.deathTimer = deathTimer;
+        this.teleportTimer = teleportTimer;
+        this.outcome = outcome;
+        this.tick = tick;
+        for (int i = 0, n = enemies.size(); i < n; i++) {
+            enemyGrid.add(enemies.id(i), enemies.x[i], enemies.y[i]);
+        }
+        map.focus(playerTileX(), playerTileY());
+        updateExplored();
+        if (map instanceof ChunkedDungeon) {
+            followPlayerChunk();
+        } else {
+            // Saves do not keep the rooms of classic maps, so a restored one spawns anywhere walkable.
+            spawnArea = WalkableIndex.build(map, Collections.<Room>emptyList(), 0, 0, width, height);
+        }
+    }
+
+    /**
+     * In a chunked level, moves the spawn area to the chunk the player
+     * stands in once they enter another one. That chunk is resident, and
+     * its rooms follow from the seed.
+     */
+    private void followPlayerChunk() {
+        if (!(map instanceof ChunkedDungeon)) return;
+        int size = ChunkedDungeon.CHUNK_SIZE;
+        int chunkX = playerCenterTileX() / size;
+        int chunkY = playerCenterTileY() / size;
+        if (chunkX == spawnChunkX && chunkY == spawnChunkY) return;
+        spawnChunkX = chunkX;
+        spawnChunkY = chunkY;
+        spawnArea = WalkableIndex.build(map, ((ChunkedDungeon) map).roomsOf(chunkX, chunkY),
+            chunkX * size, chunkY * size, size, size);
+    }
+
+    boolean isLevelCompleted() { return levelCompleted; }
+    float getDeathTimer() { return deathTimer; }
+    float getTeleportTimer() { return teleportTimer; }
+
+    private void placePlayerRandomly() {
+        int tile = spawnArea.randomTile(spawnRandom);
+        if (tile < 0) throw new IllegalStateException("Level has no walkable tile to start on");
+        player.x = spawnArea.tileX(tile) * TILE_SIZE + (TILE_SIZE - Player.SIZE) / 2f;
+        player.y = spawnArea.tileY(tile) * TILE_SIZE + (TILE_SIZE - Player.SIZE) / 2f;
+    }
+
+    private void spawnEnemies(int count) {
+        for (int k = 0; k < count; k++) {
+            spawnAt(spawnArea.randomTile(spawnRandom));
+        }
+    }
+
+    /**
+     * Spawns one enemy on a free tile of the room (-1 for anywhere in the
+     * spawn area) at least minDistance tiles from the player. Returns false
+     * if no such tile exists. A room the spawn area no longer has, since it
+     * followed the player to another chunk, counts as anywhere.
+     */
+    boolean spawnEnemy(int room, int minDistance) {
+        if (room >= spawnArea.getRoomCount()) room = -1;
+        int tile = spawnArea.randomTileAwayFrom(room, spawnRandom, playerCenterTileX(), playerCenterTileY(), minDistance);
+        if (tile < 0) return false;
+        spawnAt(tile);
+        return true;
+    }
+
+    private void spawnAt(int tile) {
+        float ex = spawnArea.tileX(tile) * TILE_SIZE + (TILE_SIZE - EnemySystem.SIZE) / 2f;
+        float ey = spawnArea.tileY(tile) * TILE_SIZE + (TILE_SIZE - EnemySystem.SIZE) / 2f;
+        enemyGrid.add(EnemySystem.spawn(enemies, ex, ey, aiSeeds.nextLong()), ex, ey);
+    }
+
+    private void placePortal(Room room) {
+        if (room != null) {
+            int x = room.centerX();
+            int y = room.centerY();
+            portal = new Portal(
+                x * TILE_SIZE + (TILE_SIZE - PORTAL_SIZE) / 2f,
+                y * TILE_SIZE + (TILE_SIZE - PORTAL_SIZE) / 2f,
+                PORTAL_SIZE);
+        }
+    }
+
+    /**
+     * Another player on a classic level, standing where the first one
+     * stands. Returns their index, which is also their slot in the inputs
+     * given to {@link #step(PlayerInput[])}.
+     */
+    public int addPlayer(PlayerClass playerClass) {
+        if (map instanceof ChunkedDungeon) throw new IllegalStateException("Co-op needs a classic dungeon");
+        if (playerCount == MAX_PLAYERS) throw new IllegalStateException("At most " + MAX_PLAYERS + " players");
+        Player joined = new Player(playerClass);
+        joined.x = player.x;
+        joined.y = player.y;
+        players[playerCount] = joined;
+        views[playerCount] = new FieldOfView();
+        flowFields[playerCount] = new FlowField();
+        playerCount++;
+        updateExplored();
+        return playerCount - 1;
+    }
+
+    public void step(PlayerInput input) {
+        soloInput[0] = input;
+        step(soloInput);
+    }
+
+    /**
+     * One tick with an input per player, by index; a missing or null input
+     * stands still. Once the outcome is decided the level is over and this
+     * does nothing, so the outcome can no longer change.
+     */
+    public void step(PlayerInput[] inputs) {
+        if (outcome != Outcome.RUNNING) return;
+        tick++;
+        begin(FrameProfiler.Phase.PLAYER);
+        for (int p = 0; p < playerCount; p++) {
+            PlayerInput input = p < inputs.length ? inputs[p] : null;
+            updatePlayer(players[p], input != null ? input : idle);
+        }
+        end(FrameProfiler.Phase.PLAYER);
+
+        begin(FrameProfiler.Phase.EXPLORE);
+        map.focus(playerTileX(), playerTileY());
+        updateExplored();
+        followPlayerChunk();
+        end(FrameProfiler.Phase.EXPLORE);
+
+        begin(FrameProfiler.Phase.FLOW);
+        for (int p = 0; p < playerCount; p++) {
+            flowFields[p].update(centerTileX(players[p]), centerTileY(players[p]), map);
+        }
+        end(FrameProfiler.Phase.FLOW);
+
+        begin(FrameProfiler.Phase.ENEMIES);
+        spawnDirector.update();
+        updateEnemies();
+        end(FrameProfiler.Phase.ENEMIES);
+
+        begin(FrameProfiler.Phase.PROJECTILES);
+        updateProjectiles();
+        end(FrameProfiler.Phase.PROJECTILES);
+
+        updateTimers();
+    }
+
+    private void begin(FrameProfiler.Phase phase) {
+        if (profiler != null) profiler.begin(phase);
+    }
+
+    private void end(FrameProfiler.Phase phase) {
+        if (profiler != null) profiler.end(phase);
+    }
+
+    private void updatePlayer(Player player, PlayerInput input) {
+        if (player.isDead()) return;
+
+        float newX = player.x, newY = player.y;
+        if (input.up) newY += Player.SPEED * TICK;
+        if (input.down) newY -= Player.SPEED * TICK;
+        if (input.left) newX -= Player.SPEED * TICK;
+        if (input.right) newX += Player.SPEED * TICK;
+
+        if (canMoveTo(newX, newY)) {
+            float dx = newX - player.x, dy = newY - player.y;
+            if (dx != 0 || dy != 0) player.facingAngle = (float) StrictMath.toDegrees(StrictMath.atan2(dy, dx));
+            player.x = newX;
+            player.y = newY;
+        }
+
+        player.attackCooldown -= TICK;
+
+        if (input.attack && player.attackCooldown <= 0f) {
+            attack(player);
+        }
+
+        if (!levelCompleted && portal != null && portal.isPlayerInPortal(player.x, player.y, Player.SIZE)) {
+            levelCompleted = true;
+            teleportTimer = TELEPORT_DELAY;
+        }
+    }
+
+    private void attack(Player player) {
+        PlayerClass playerClass = player.getPlayerClass();
+        AttackProfile attackProfile = playerClass.getAttackProfile();
+        double rad = StrictMath.toRadians(player.facingAngle);
+        float forwardX = (float) StrictMath.cos(rad);
+        float forwardY = (float) StrictMath.sin(rad);
+        float edgeX = player.centerX() + forwardX * attackProfile.offset;
+        float edgeY = player.centerY() + forwardY * attackProfile.offset;
+        player.attackCooldown = playerClass.getAttackSpeed();
+
+        if (attackProfile.kind == AttackProfile.Kind.PROJECTILE) {
+            projectiles.create(edgeX, edgeY, forwardX, forwardY, attackProfile.speed,
+                playerClass.getAttackRange(), attackProfile.size, playerClass.getAttackDamage());
+            return;
+        }
+
+        float rightX = -forwardY;
+        float rightY = forwardX;
+        float attackLength = attackProfile.length;
+        float attackThickness = attackProfile.thickness;
+
+        float attackCenterX = edgeX + forwardX * (attackLength / 2f);
+        float attackCenterY = edgeY + forwardY * (attackLength / 2f);
+
+        float attackW = Math.abs(forwardX * attackLength + rightX * attackThickness);
+        float attackH = Math.abs(forwardY * attackLength + rightY * attackThickness);
+
+        attackBoxX = attackCenterX - attackW / 2f;
+        attackBoxY = attackCenterY - attackH / 2f;
+        attackBoxW = attackW;
+        attackBoxH = attackH;
+        showAttackBoxTimer = ATTACK_BOX_DURATION;
+
+        hitEnemiesInBox(attackBoxX, attackBoxY, attackBoxW, attackBoxH, playerClass.getAttackDamage());
+    }
+
+    /** Moves projectiles, then applies every hit they made this tick. */
+    private void updateProjectiles() {
+        if (projectiles.size() == 0) return;
+        hitIds.clear();
+        hitDamage.clear();
+        ProjectileSystem.update(projectiles, TICK, map, enemies, enemyGrid, nearbyEnemies, hitIds, hitDamage);
+        for (int k = 0; k < hitIds.size; k++) {
+            damageEnemy(hitIds.get(k), hitDamage.get(k));
+        }
+    }
+
+    public void hitEnemiesInBox(float x, float y, float w, float h, int damage) {
+        nearbyEnemies.clear();
+        enemyGrid.queryBox(enemies, x, y, w, h, nearbyEnemies);
+        for (int k = 0; k < nearbyEnemies.size; k++) {
+            damageEnemy(nearbyEnemies.get(k), damage);
+        }
+    }
+
+    /** Ignores enemies already removed earlier in the same tick. */
+    private void damageEnemy(int id, int damage) {
+        int i = enemies.index(id);
+        if (i < 0) return;
+        enemies.health[i] -= damage;
+        if (enemies.health[i] <= 0) {
+            enemyGrid.remove(id);
+            enemies.remove(id);
+        }
+    }
+
+    private int playerTileX() {
+        return (int) (player.x / TILE_SIZE);
+    }
+
+    private int playerTileY() {
+        return (int) (player.y / TILE_SIZE);
+    }
+
+    private int playerCenterTileX() {
+        return centerTileX(player);
+    }
+
+    private int playerCenterTileY() {
+        return centerTileY(player);
+    }
+
+    private static int centerTileX(Player player) {
+        return (int) (player.centerX() / TILE_SIZE);
+    }
+
+    private static int centerTileY(Player player) {
+        return (int) (player.centerY() / TILE_SIZE);
+    }
+
+    public void updateExplored() {
+        for (int p = 0; p < playerCount; p++) {
+            FieldOfView view = views[p];
+            if (!view.update(centerTileX(players[p]), centerTileY(players[p]), map)) continue;
+            fog.reveal(view);
+            if (!portalDiscovered && portal != null && portalVisible(view)) {
+                portalDiscovered = true;
+            }
+        }
+    }
+
+    private boolean portalVisible(FieldOfView fieldOfView) {
+        int x0 = (int) (portal.getX() / TILE_SIZE);
+        int y0 = (int) (portal.getY() / TILE_SIZE);
+        int x1 = (int) ((portal.getX() + portal.getSize() - 1) / TILE_SIZE);
+        int y1 = (int) ((portal.getY() + portal.getSize() - 1) / TILE_SIZE);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                if (fieldOfView.isVisible(x, y)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Enemies go for living players; once everyone is down they stay on the bodies until the level ends. */
+    private void updateEnemies() {
+        int living = livingPlayers();
+        targets.clear();
+        for (int p = 0; p < playerCount; p++) {
+            Player target = players[p];
+            if (living == 0 || !target.isDead()) targets.add(target.x, target.y, flowFields[p], views[p]);
+        }
+        EnemySystem.updateParallel(enemyUpdatePool, enemies, TICK, targets, map);
+        for (int i = 0, n = enemies.size(); i < n; i++) {
+            enemyGrid.update(enemies.id(i), enemies.x[i], enemies.y[i]);
+        }
+
+        for (int p = 0; p < playerCount; p++) {
+            Player target = players[p];
+            if (living > 0 && target.isDead()) continue;
+            nearbyEnemies.clear();
+            enemyGrid.queryRange(enemies, target.x, target.y, EnemySystem.ATTACK_RANGE, nearbyEnemies);
+            for (int k = 0; k < nearbyEnemies.size; k++) {
+                int i = enemies.index(nearbyEnemies.get(k));
+                if (EnemySystem.canAttack(enemies, i, target.x, target.y)) {
+                    target.health--;
+                    EnemySystem.attack(enemies, i);
+                }
+            }
+        }
+    }
+
+    private int livingPlayers() {
+        int living = 0;
+        for (int p = 0; p < playerCount; p++) {
+            if (!players[p].isDead()) living++;
+        }
+        return living;
+    }
+
+    private void updateTimers() {
+        if (showAttackBoxTimer > 0f) {
+            showAttackBoxTimer -= TICK;
+        }
+
+        boolean allDead = livingPlayers() == 0;
+        if (allDead && deathTimer <= 0) {
+            deathTimer = DEATH_DELAY;
+        }
+
+        if (allDead) {
+            deathTimer -= TICK;
+            if (deathTimer <= 0) outcome = Outcome.PLAYER_DIED;
+        } else if (levelCompleted) {
+            teleportTimer -= TICK;
+            if (teleportTimer <= 0) outcome = Outcome.LEVEL_COMPLETED;
+        }
+    }
+
+    public boolean canMoveTo(float x, float y) {
+        return isTileEmpty(x, y) &&
+            isTileEmpty(x + Player.SIZE - 1, y) &&
+            isTileEmpty(x, y + Player.SIZE - 1) &&
+            isTileEmpty(x + Player.SIZE - 1, y + Player.SIZE - 1);
+    }
+
+    public boolean isTileEmpty(float x, float y) {
+        return map.isWalkableAt(x, y);
+    }
+
+    public TileSource getMap() { return map; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    /** The first player. */
+    public Player getPlayer() { return player; }
+    public Player getPlayer(int index) { return players[index]; }
+    public int getPlayerCount() { return playerCount; }
+    public EnemyStore getEnemies() { return enemies; }
+    public EnemyGrid getEnemyGrid() { return enemyGrid; }
+    public ProjectileStore getProjectiles() { return projectiles; }
+    public SpawnDirector getSpawnDirector() { return spawnDirector; }
+    /** Walkable tiles of the area enemies spawn in. */
+    public WalkableIndex getSpawnArea() { return spawnArea; }
+
+    /** Runs enemy AI on the given pool when there are enough enemies; null keeps it on the calling thread. */
+    public void setEnemyUpdatePool(ForkJoinPool pool) { enemyUpdatePool = pool; }
+    public void setProfiler(FrameProfiler profiler) { this.profiler = profiler; }
+    public Portal getPortal() { return portal; }
+    public FogOfWar getFog() { return fog; }
+    public FieldOfView getFieldOfView() { return views[0]; }
+    public FlowField getFlowField() { return flowFields[0]; }
+    public boolean isExplored(int x, int y) { return fog.isExplored(x, y); }
+    public boolean isPortalDiscovered() { return portalDiscovered; }
+    public Outcome getOutcome() { return outcome; }
+    public long getSeed() { return seed; }
+    public long getTick() { return tick; }
+
+    /**
+     * Carries what the players keep between floors over from the previous
+     * floor. A co-op player who fell there starts this one at full health.
+     */
+    public void carryOver(World previous) {
+        for (int p = 0; p < Math.min(playerCount, previous.playerCount); p++) {
+            if (!previous.players[p].isDead()) players[p].health = previous.players[p].health;
+        }
+    }
+
+    /** Hash of the simulation state: tick, players, enemies, projectiles, fog and outcome. */
+    public long checksum() {
+        long h = mix(tick);
+        h = mix(h ^ Float.floatToIntBits(player.x));
+        h = mix(h ^ Float.floatToIntBits(player.y));
+        h = mix(h ^ Float.floatToIntBits(player.facingAngle));
+        h = mix(h ^ player.health);
+        for (int p = 1; p < playerCount; p++) {
+            h = mix(h ^ Float.floatToIntBits(players[p].x));
+            h = mix(h ^ Float.floatToIntBits(players[p].y));
+            h = mix(h ^ Float.floatToIntBits(players[p].facingAngle));
+            h = mix(h ^ players[p].health);
+        }
+        for (int i = 0, n = enemies.size(); i < n; i++) {
+            h = mix(h ^ enemies.id(i));
+            h = mix(h ^ Float.floatToIntBits(enemies.x[i]));
+            h = mix(h ^ Float.floatToIntBits(enemies.y[i]));
+            h = mix(h ^ enemies.health[i]);
+            h = mix(h ^ enemies.rng[i]);
+        }
+        for (int i = 0, n = projectiles.size(); i < n; i++) {
+            h = mix(h ^ Float.floatToIntBits(projectiles.x[i]));
+            h = mix(h ^ Float.floatToIntBits(projectiles.y[i]));
+        }
+        for (long word : fog.getBits()) {
+            h = mix(h ^ word);
+        }
+        return mix(h ^ outcome.ordinal());
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    public void dispose() {
+        map.dispose();
+    }
+
+    public boolean isAttackBoxVisible() { return showAttackBoxTimer > 0f; }
+    public float getAttackBoxX() { return attackBoxX; }
+    public float getAttackBoxY() { return attackBoxY; }
+    public float getAttackBoxW() { return attackBoxW; }
+    public float getAttackBoxH() { return attackBoxH; }
+}
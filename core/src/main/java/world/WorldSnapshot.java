@@ -0,0 +1,175 @@
+package world;
+
+import com.badlogic.gdx.utils.IntArray;
+import entities.EnemyStore;
+import entities.Player;
+import entities.ProjectileStore;
+import maps.DungeonGenerator;
+import maps.Portal;
+import maps.TileSource;
+
+import java.util.Arrays;
+
+/**
+ * What the renderer needs of one tick of a {@link World}, copied out so it
+ * can be drawn while the simulation moves on. Only enemies near the player
+ * are copied, since only they can be on screen. Newly explored tiles come
+ * with whether each one is a wall, so the renderer never reads a map that
+ * the simulation may be streaming. Buffers only grow, so capturing
+ * allocates nothing once warmed up.
+ */
+public class WorldSnapshot {
+    /** The world this was captured from; only its identity and size may be used. */
+    public World world;
+    public long tick;
+    /** {@link System#nanoTime()} at capture. */
+    public long capturedNanos;
+
+    public float playerX, playerY;
+    public int playerHealth;
+    public Portal portal;
+    public boolean portalDiscovered;
+    public World.Outcome outcome = World.Outcome.RUNNING;
+
+    public boolean attackBoxVisible;
+    public float attackBoxX, attackBoxY, attackBoxW, attackBoxH;
+
+    public int enemyCount;
+    public int[] enemyId = new int[64];
+    public float[] enemyX = new float[64];
+    public float[] enemyY = new float[64];
+
+    public int projectileCount;
+    public float[] projectileX = new float[16];
+    public float[] projectileY = new float[16];
+    /** Velocity in pixels per second. */
+    public float[] projectileVX = new float[16];
+    public float[] projectileVY = new float[16];
+    public float[] projectileSide = new float[16];
+
+    /** Tiles explored since the previous snapshot, as y * width + x. */
+    public int revealedCount;
+    public int[] revealedTile = new int[256];
+    public boolean[] revealedWall = new boolean[256];
+
+    private final IntArray nearby = new IntArray();
+    /** Index of each captured enemy by id, valid where indexStamp matches stamp. */
+    private int[] indexById = new int[64];
+    private int[] indexStamp = new int[64];
+    private int stamp;
+
+    /**
+     * Copies the world's state, with the enemies whose boxes overlap the
+     * rectangle of halfWidth by halfHeight around the player's center, and
+     * takes the fog's change set, which is cleared.
+     */
+    public void capture(World world, float halfWidth, float halfHeight) {
+        this.world = world;
+        tick = world.getTick();
+        capturedNanos = System.nanoTime();
+
+        Player player = world.getPlayer();
+        playerX = player.x;
+        playerY = player.y;
+        playerHealth = player.health;
+        portal = world.getPortal();
+        portalDiscovered = world.isPortalDiscovered();
+        outcome = world.getOutcome();
+
+        attackBoxVisible = world.isAttackBoxVisible();
+        attackBoxX = world.getAttackBoxX();
+        attackBoxY = world.getAttackBoxY();
+        attackBoxW = world.getAttackBoxW();
+        attackBoxH = world.getAttackBoxH();
+
+        captureEnemies(world, player.centerX() - halfWidth, player.centerY() - halfHeight, 2 * halfWidth, 2 * halfHeight);
+        captureProjectiles(world.getProjectiles());
+        captureRevealed(world.getFog(), world.getMap());
+    }
+
+    /** Index of the enemy with the given id in this snapshot, or -1 if it was not captured. */
+    public int indexOf(int id) {
+        return id < indexStamp.length && indexStamp[id] == stamp ? indexById[id] : -1;
+    }
+
+    private void captureEnemies(World world, float x, float y, float w, float h) {
+        EnemyStore enemies = world.getEnemies();
+        nearby.clear();
+        world.getEnemyGrid().queryBox(enemies, x, y, w, h, nearby);
+
+        int n = nearby.size;
+        if (n > enemyId.length) {
+            int capacity = Math.max(n, enemyId.length * 2);
+            enemyId = Arrays.copyOf(enemyId, capacity);
+            enemyX = Arrays.copyOf(enemyX, capacity);
+            enemyY = Arrays.copyOf(enemyY, capacity);
+        }
+        if (enemies.idCapacity() > indexById.length) {
+            indexById = Arrays.copyOf(indexById, enemies.idCapacity());
+            indexStamp = Arrays.copyOf(indexStamp, enemies.idCapacity());
+        }
+        if (++stamp == 0) {
+            Arrays.fill(indexStamp, 0);
+            stamp = 1;
+        }
+
+        for (int k = 0; k < n; k++) {
+            int id = nearby.get(k);
+            int i = enemies.index(id);
+            enemyId[k] = id;
+            enemyX[k] = enemies.x[i];
+            enemyY[k] = enemies.y[i];
+            indexById[id] = k;
+            indexStamp[id] = stamp;
+        }
+        enemyCount = n;
+    }
+
+    private void captureProjectiles(ProjectileStore projectiles) {
+        int n = projectiles.size();
+        if (n > projectileX.length) {
+            int capacity = Math.max(n, projectileX.length * 2);
+            projectileX = Arrays.copyOf(projectileX, capacity);
+            projectileY = Arrays.copyOf(projectileY, capacity);
+            projectileVX = Arrays.copyOf(projectileVX, capacity);
+            projectileVY = Arrays.copyOf(projectileVY, capacity);
+            projectileSide = Arrays.copyOf(projectileSide, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            projectileX[i] = projectiles.x[i];
+            projectileY[i] = projectiles.y[i];
+            projectileVX[i] = projectiles.dirX[i] * projectiles.speed[i];
+            projectileVY[i] = projectiles.dirY[i] * projectiles.speed[i];
+            projectileSide[i] = projectiles.side[i];
+        }
+        projectileCount = n;
+    }
+
+    private void captureRevealed(FogOfWar fog, TileSource map) {
+        int n = fog.getRevealedCount();
+        ensureRevealedCapacity(revealedCount + n);
+        int width = fog.getWidth();
+        for (int k = 0; k < n; k++) {
+            int tile = fog.getRevealed(k);
+            revealedTile[revealedCount] = tile;
+            revealedWall[revealedCount] = map.get(tile % width, tile / width) == DungeonGenerator.TILE_WALL;
+            revealedCount++;
+        }
+        fog.clearRevealed();
+    }
+
+    /** Takes over the explored tiles of an older snapshot of the same world that was never drawn. */
+    void keepRevealed(WorldSnapshot older) {
+        ensureRevealedCapacity(revealedCount + older.revealedCount);
+        System.arraycopy(older.revealedTile, 0, revealedTile, revealedCount, older.revealedCount);
+        System.arraycopy(older.revealedWall, 0, revealedWall, revealedCount, older.revealedCount);
+        revealedCount += older.revealedCount;
+    }
+
+    private void ensureRevealedCapacity(int capacity) {
+        if (capacity <= revealedTile.length) return;
+        capacity = Math.max(capacity, revealedTile.length * 2);
+        revealedTile = Arrays.copyOf(revealedTile, capacity);
+        revealedWall = Arrays.copyOf(revealedWall, capacity);
+    }
+}
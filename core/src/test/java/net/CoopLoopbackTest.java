@@ -0,0 +1,168 @@
+package net;
+
+import entities.EnemyStore;
+import maps.Portal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import world.PlayerInput;
+import world.World;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A server and clients over loopback UDP, with a proxy between them that
+ * drops datagrams both ways. Whenever a client holds the snapshot of the
+ * tick the server just stepped, it must match the server's level exactly
+ * as quantized.
+ */
+class CoopLoopbackTest {
+    private static final long RUN_SEED = 0x10BAL;
+    private static final int ENEMIES = 60;
+    private static final double LOSS = 0.2;
+    private static final String[] CLASSES = {"Warrior", "Archer", "Mage"};
+
+    private final Random random = new Random(11);
+    private final ByteBuffer buf = ByteBuffer.allocate(Protocol.MAX_PACKET_BYTES);
+    private CoopServer server;
+    private DatagramChannel proxy;
+    private final Map<SocketAddress, DatagramChannel> upstream = new HashMap<>();
+    private final Map<DatagramChannel, SocketAddress> downstream = new HashMap<>();
+    private CoopClient[] clients;
+    private PlayerInput[] inputs;
+    private int checked;
+
+    @AfterEach
+    void close() throws IOException {
+        if (clients != null) {
+            for (CoopClient client : clients) client.close();
+        }
+        for (DatagramChannel channel : upstream.values()) channel.close();
+        if (proxy != null) proxy.close();
+        if (server != null) server.close();
+    }
+
+    @Test
+    void clientsTrackTheServerThroughLossRejoinAndFloorChange() throws IOException {
+        start();
+        run(300);
+        assertEquals(CLASSES.length, server.connectedCount());
+        for (int c = 0; c < clients.length; c++) assertEquals(c, clients[c].getSlot());
+        assertTrue(checked > 0);
+
+        // A client that starts over gets its own slot back and a full snapshot.
+        clients[1].join(CLASSES[1]);
+        long before = clients[1].getSnapshotsReceived();
+        checked = 0;
+        run(300);
+        assertEquals(1, clients[1].getSlot());
+        assertTrue(clients[1].getSnapshotsReceived() > before);
+        assertTrue(checked > 0);
+
+        // Everyone moves to floor 2 once a player reaches the portal.
+        Portal portal = server.getWorld().getPortal();
+        server.getWorld().getPlayer().x = portal.getX();
+        server.getWorld().getPlayer().y = portal.getY();
+        checked = 0;
+        run(300);
+        assertEquals(2, server.getFloor());
+        for (CoopClient client : clients) assertEquals(2, client.getState().getFloor());
+        assertTrue(checked > 0);
+    }
+
+    private void start() throws IOException {
+        server = new CoopServer(0, RUN_SEED, ENEMIES);
+        proxy = DatagramChannel.open();
+        proxy.configureBlocking(false);
+        proxy.bind(new InetSocketAddress("127.0.0.1", 0));
+        clients = new CoopClient[CLASSES.length];
+        inputs = new PlayerInput[CLASSES.length];
+        for (int c = 0; c < clients.length; c++) {
+            clients[c] = new CoopClient(proxy.getLocalAddress());
+            inputs[c] = new PlayerInput();
+        }
+    }
+
+    private void run(int ticks) throws IOException {
+        for (int t = 0; t < ticks; t++) {
+            for (int c = 0; c < clients.length; c++) {
+                CoopClient client = clients[c];
+                if (!client.isJoined()) {
+                    // Joined in slot order, so each client's slot is its index.
+                    if (c == 0 || clients[c - 1].isJoined()) client.join(CLASSES[c]);
+                    continue;
+                }
+                if (t % 20 == 0) inputs[c].setBits(1 << random.nextInt(4));
+                inputs[c].attack = random.nextInt(10) == 0;
+                client.sendInput(inputs[c]);
+            }
+            forward();
+            server.tick();
+            World world = server.getWorld();
+            if (world != null) {
+                for (int p = 0; p < world.getPlayerCount(); p++) world.getPlayer(p).health = Integer.MAX_VALUE / 2;
+            }
+            forward();
+            for (CoopClient client : clients) {
+                client.poll();
+                if (world != null) check(client, world);
+            }
+        }
+    }
+
+    private void check(CoopClient client, World world) {
+        NetState state = client.getState();
+        if (state == null || state.getTick() != world.getTick() || state.getFloor() != server.getFloor()) return;
+        checked++;
+        assertEquals(world.getPlayerCount(), state.getPlayerCount());
+        for (int p = 0; p < state.getPlayerCount(); p++) {
+            assertEquals(Protocol.quantize(world.getPlayer(p).x), state.playerX[p]);
+            assertEquals(Protocol.quantize(world.getPlayer(p).y), state.playerY[p]);
+        }
+        EnemyStore enemies = world.getEnemies();
+        for (int k = 0; k < state.getEnemyCount(); k++) {
+            int i = enemies.index(state.getEnemyId(k));
+            assertTrue(i >= 0, "enemy " + state.getEnemyId(k) + " is not in the level");
+            assertEquals(Protocol.quantize(enemies.x[i]), state.enemyX[k]);
+            assertEquals(Protocol.quantize(enemies.y[i]), state.enemyY[k]);
+            assertEquals(enemies.health[i], state.enemyHealth[k]);
+        }
+    }
+
+    /** Passes waiting datagrams on through the proxy, dropping some; one upstream socket per client. */
+    private void forward() throws IOException {
+        SocketAddress target = new InetSocketAddress("127.0.0.1", server.getPort());
+        SocketAddress from;
+        while (true) {
+            buf.clear();
+            if ((from = proxy.receive(buf)) == null) break;
+            buf.flip();
+            DatagramChannel channel = upstream.get(from);
+            if (channel == null) {
+                channel = DatagramChannel.open();
+                channel.configureBlocking(false);
+                channel.connect(target);
+                upstream.put(from, channel);
+                downstream.put(channel, from);
+            }
+            if (random.nextDouble() >= LOSS) channel.write(buf);
+        }
+        for (Map.Entry<DatagramChannel, SocketAddress> entry : downstream.entrySet()) {
+            while (true) {
+                buf.clear();
+                if (entry.getKey().receive(buf) == null) break;
+                buf.flip();
+                if (random.nextDouble() >= LOSS) proxy.send(buf, entry.getValue());
+            }
+        }
+    }
+}
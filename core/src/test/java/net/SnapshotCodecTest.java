@@ -0,0 +1,209 @@
+package net;
+
+import entities.EnemyStore;
+import entities.MainCharacterTypes.Warrior;
+import entities.Player;
+import maps.DungeonGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import world.PlayerInput;
+import world.World;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes snapshots of a running level and reads them back the way a
+ * client would, checking that the client always ends up with exactly the
+ * state the server recorded for it.
+ */
+class SnapshotCodecTest {
+    private static final long SEED = 0xC0DEL;
+    private static final int HISTORY = 8;
+
+    private final SnapshotCodec writer = new SnapshotCodec();
+    private final SnapshotCodec reader = new SnapshotCodec();
+    private final ByteBuffer buf = ByteBuffer.allocate(Protocol.MAX_PACKET_BYTES);
+    private final NetState[] sent = states();
+    private final NetState[] received = states();
+    private final PlayerInput input = new PlayerInput();
+    private World world;
+    private int seq;
+
+    @AfterEach
+    void disposeWorld() {
+        if (world != null) world.dispose();
+    }
+
+    @Test
+    void fullSnapshotRoundTrips() throws IOException {
+        world = new World(new Warrior(), new DungeonGenerator(SEED), 100);
+        send(null);
+        NetState state = receive();
+        assertEquals(world.getTick(), state.getTick());
+        assertEquals(world.getPlayer().x, state.getPlayerX(0), 0.5f / Protocol.POSITION_SCALE);
+        assertEquals(world.getPlayer().health, state.getPlayerHealth(0));
+    }
+
+    @Test
+    void deltasRebuildTheServerState() throws IOException {
+        world = new World(new Warrior(), new DungeonGenerator(SEED), 300);
+        NetState acked = null;
+        int fullBytes = 0;
+        int deltaBytes = 0;
+        boolean sawRemoval = false;
+        for (int t = 0; t < 600; t++) {
+            step(t);
+            int bytes = send(acked);
+            if (acked == null) fullBytes = bytes;
+            else deltaBytes = Math.max(deltaBytes, bytes);
+            NetState state = receive();
+            if (acked != null) sawRemoval |= lostAnEnemy(acked, state);
+            acked = state;
+        }
+        assertTrue(sawRemoval, "some enemy left the interest box");
+        assertTrue(deltaBytes < fullBytes, "deltas are smaller than the full snapshot");
+    }
+
+    @Test
+    void lostSnapshotsDeltaAgainstTheLastAcknowledged() throws IOException {
+        world = new World(new Warrior(), new DungeonGenerator(SEED), 300);
+        Random loss = new Random(3);
+        NetState acked = null;
+        int applied = 0;
+        int full = 0;
+        for (int t = 0; t < 600; t++) {
+            step(t);
+            // Too old to be in the server's history: it sends a full snapshot.
+            if (acked != null && seq - acked.seq >= HISTORY) acked = null;
+            if (acked == null) full++;
+            send(acked);
+            // Lost on the way, or its acknowledgement was: the server keeps the old baseline.
+            if (loss.nextInt(3) == 0) continue;
+            acked = receive();
+            applied++;
+        }
+        assertTrue(applied > 300);
+        assertTrue(full < 10);
+    }
+
+    @Test
+    void crowdedSnapshotsStayUnderBudgetWithEnemiesInViewFirst() throws IOException {
+        world = new World(new Warrior(), new DungeonGenerator(SEED), 4000);
+        NetState acked = null;
+        int incomplete = 0;
+        for (int t = 0; t < 120; t++) {
+            step(t);
+            int bytes = send(acked);
+            assertTrue(bytes <= Protocol.MAX_SNAPSHOT_BYTES, "snapshot of " + bytes + " bytes");
+            NetState state = receive();
+            if (countNearby(SnapshotCodec.INTEREST_HALF_WIDTH, SnapshotCodec.INTEREST_HALF_HEIGHT) > state.getEnemyCount()) incomplete++;
+            assertEquals(0, missingInView(state), "enemies in view missing from the snapshot");
+            acked = state;
+        }
+        assertTrue(incomplete > 0, "the interest box held more enemies than fit");
+    }
+
+    private void step(int t) {
+        input.setBits((t / 40) % 16 | (t % 30 == 0 ? PlayerInput.ATTACK : 0));
+        world.getPlayer().health = world.getPlayer().getPlayerClass().getMaxHealth();
+        world.step(input);
+    }
+
+    /**
+     * Writes the next snapshot for player 0 against the server's copy of
+     * the acknowledged one (null for a full snapshot) and returns its size;
+     * buf is left ready to read.
+     */
+    private int send(NetState acked) {
+        buf.clear();
+        int s = seq++;
+        writer.write(world, 1, 0, s, acked == null ? null : sent[acked.seq % HISTORY], sent[s % HISTORY], buf);
+        buf.flip();
+        return buf.remaining();
+    }
+
+    /** Reads buf against the client's copy of the baseline it names, and checks the result is what was sent. */
+    private NetState receive() throws IOException {
+        assertEquals(Protocol.SNAPSHOT, Protocol.getHeader(buf));
+        int baselineSeq = SnapshotCodec.peekBaselineSeq(buf);
+        NetState baseline = baselineSeq < 0 ? null : received[baselineSeq % HISTORY];
+        if (baseline != null) assertEquals(baselineSeq, baseline.seq);
+        NetState state = received[SnapshotCodec.peekSeq(buf) % HISTORY];
+        reader.read(buf, baseline, state);
+        assertEquals(0, buf.remaining());
+        assertSameState(sent[state.seq % HISTORY], state);
+        return state;
+    }
+
+    private static boolean lostAnEnemy(NetState before, NetState after) {
+        for (int k = 0; k < before.enemyCount; k++) {
+            if (after.indexOfEnemy(before.enemyId[k]) < 0) return true;
+        }
+        return false;
+    }
+
+    private int countNearby(float halfWidth, float halfHeight) {
+        Player self = world.getPlayer();
+        EnemyStore enemies = world.getEnemies();
+        int count = 0;
+        for (int i = 0; i < enemies.size(); i++) {
+            if (Math.abs(enemies.x[i] - self.centerX()) < halfWidth && Math.abs(enemies.y[i] - self.centerY()) < halfHeight) count++;
+        }
+        return count;
+    }
+
+    private int missingInView(NetState state) {
+        Player self = world.getPlayer();
+        EnemyStore enemies = world.getEnemies();
+        int missing = 0;
+        for (int i = 0; i < enemies.size(); i++) {
+            if (Math.abs(enemies.x[i] - self.centerX()) >= SnapshotCodec.VIEW_HALF_WIDTH
+                || Math.abs(enemies.y[i] - self.centerY()) >= SnapshotCodec.VIEW_HALF_HEIGHT) continue;
+            if (state.indexOfEnemy(enemies.id(i)) < 0) missing++;
+        }
+        return missing;
+    }
+
+    static void assertSameState(NetState expected, NetState actual) {
+        assertEquals(expected.seq, actual.seq);
+        assertEquals(expected.tick, actual.tick);
+        assertEquals(expected.floor, actual.floor);
+        assertEquals(expected.outcome, actual.outcome);
+        assertEquals(expected.portalDiscovered, actual.portalDiscovered);
+        assertEquals(expected.portalX, actual.portalX);
+        assertEquals(expected.portalY, actual.portalY);
+        assertEquals(expected.playerCount, actual.playerCount);
+        for (int p = 0; p < expected.playerCount; p++) {
+            assertEquals(expected.playerX[p], actual.playerX[p]);
+            assertEquals(expected.playerY[p], actual.playerY[p]);
+            assertEquals(expected.playerHealth[p], actual.playerHealth[p]);
+            assertEquals(expected.playerFacing[p], actual.playerFacing[p]);
+        }
+        assertEquals(expected.projectileCount, actual.projectileCount, "projectiles");
+        for (int k = 0; k < expected.projectileCount; k++) {
+            assertEquals(expected.projectileX[k], actual.projectileX[k]);
+            assertEquals(expected.projectileY[k], actual.projectileY[k]);
+        }
+        assertEquals(expected.enemyCount, actual.enemyCount, "enemies");
+        for (int k = 0; k < expected.enemyCount; k++) {
+            int j = actual.indexOfEnemy(expected.enemyId[k]);
+            assertTrue(j >= 0, "enemy " + expected.enemyId[k] + " missing");
+            assertArrayEquals(
+                new int[] {expected.enemyX[k], expected.enemyY[k], expected.enemyHealth[k]},
+                new int[] {actual.enemyX[j], actual.enemyY[j], actual.enemyHealth[j]},
+                "enemy " + expected.enemyId[k]);
+        }
+    }
+
+    private static NetState[] states() {
+        NetState[] states = new NetState[HISTORY];
+        for (int k = 0; k < HISTORY; k++) states[k] = new NetState();
+        return states;
+    }
+}
@@ -0,0 +1,88 @@
+package screens;
+
+import entities.MainCharacterTypes.Warrior;
+import maps.DungeonGenerator;
+import org.junit.jupiter.api.Test;
+import world.PlayerInput;
+import world.SnapshotBuffer;
+import world.World;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the GL-free part of a frame (the tick, the render snapshot passed
+ * through a {@link SnapshotBuffer}, and the HUD text) and checks that it
+ * allocates nothing on this thread once warmed up. The optimizing JIT may
+ * charge a few hundred bytes to whichever frame is running when compiled
+ * code is swapped in, so a window that allocates is measured again, up to
+ * ATTEMPTS times; anything that allocates per frame fails every window.
+ */
+class FrameAllocationTest {
+    private static final long SEED = 0x5EEDL;
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int WINDOW_FRAMES = 5_000;
+    private static final int ATTEMPTS = 3;
+    /** Same extent as the game screen's snapshots. */
+    private static final float CAPTURE_HALF_WIDTH = 10 * DungeonGenerator.TILE_SIZE;
+    private static final float CAPTURE_HALF_HEIGHT = 7 * DungeonGenerator.TILE_SIZE;
+
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+    private final PlayerInput input = new PlayerInput();
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final HudText hud = new HudText();
+    private int frame;
+
+    @Test
+    void classicFramesDoNotAllocate() {
+        assertNoAllocation(false);
+    }
+
+    @Test
+    void chunkedFramesDoNotAllocate() {
+        assertNoAllocation(true);
+    }
+
+    private void assertNoAllocation(boolean chunked) {
+        assumeTrue(threads != null, "this JVM cannot count allocated bytes");
+        World world = World.createFloor(new Warrior(), SEED, 1, chunked, true);
+        try {
+            for (int f = 0; f < WARMUP_FRAMES; f++) frame(world);
+            long allocated = 0;
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                long threadId = Thread.currentThread().getId();
+                long before = threads.getThreadAllocatedBytes(threadId);
+                for (int f = 0; f < WINDOW_FRAMES; f++) frame(world);
+                allocated = threads.getThreadAllocatedBytes(threadId) - before;
+                if (allocated == 0) break;
+            }
+            assertEquals(0, allocated, "bytes allocated over " + WINDOW_FRAMES + " frames");
+        } finally {
+            world.dispose();
+        }
+    }
+
+    /** Walks in a slowly turning pattern, attacking now and then, and never dies; the HUD changes every frame. */
+    private void frame(World world) {
+        int t = frame++;
+        input.setBits((t / 37) % 16 | (t % 50 == 0 ? PlayerInput.ATTACK : 0));
+        int maxHealth = world.getPlayer().getPlayerClass().getMaxHealth();
+        world.getPlayer().health = maxHealth;
+        world.step(input);
+        snapshots.beginWrite().capture(world, CAPTURE_HALF_WIDTH, CAPTURE_HALF_HEIGHT);
+        snapshots.publish();
+        snapshots.acquire();
+        hud.update(t % maxHealth, maxHealth, 1 + t % 3);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
@@ -0,0 +1,53 @@
+package world;
+
+import entities.EnemySystem;
+import entities.MainCharacterTypes.Warrior;
+import maps.DungeonGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Steps the same seeded level serially and on pools of several sizes, with
+ * enough enemies for the parallel update, and checks that every run ends in
+ * the same state.
+ */
+class ParallelUpdateTest {
+    private static final long SEED = 0xC0FFEEL;
+    private static final int ENEMIES = 5000;
+    private static final int TICKS = 300;
+
+    @Test
+    void poolSizeDoesNotChangeTheOutcome() {
+        long serial = run(null);
+        for (int threads : new int[] {1, 2, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                assertEquals(serial, run(pool), "checksum with " + threads + " threads");
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /** Walks and attacks through a scripted run without dying; returns the final checksum. */
+    private static long run(ForkJoinPool pool) {
+        World world = new World(new Warrior(), new DungeonGenerator(SEED), ENEMIES);
+        world.setEnemyUpdatePool(pool);
+        PlayerInput input = new PlayerInput();
+        try {
+            for (int t = 0; t < TICKS; t++) {
+                input.setBits((t / 23) % 16 | (t % 20 == 0 ? PlayerInput.ATTACK : 0));
+                world.getPlayer().health = Integer.MAX_VALUE;
+                world.step(input);
+            }
+            assertTrue(world.getEnemies().size() >= EnemySystem.PARALLEL_THRESHOLD, "enemies left for the parallel update");
+            return world.checksum();
+        } finally {
+            world.dispose();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package world;
+
+import entities.MainCharacterTypes.Warrior;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Saves a level part way through, loads it back, and checks both go on identically. */
+class SaveGameTest {
+    private static final long RUN_SEED = 0x5A7EL;
+    private static final int FLOOR = 2;
+    private static final int TICKS = 300;
+
+    @Test
+    void classicLevelRoundTrips() throws IOException {
+        assertRoundTrip(false);
+    }
+
+    @Test
+    void chunkedLevelRoundTrips() throws IOException {
+        assertRoundTrip(true);
+    }
+
+    @Test
+    void savingOverALoadedSaveWorks() throws IOException {
+        World world = World.createFloor(new Warrior(), RUN_SEED, FLOOR, false, true);
+        Path dir = Files.createTempDirectory("save-test");
+        Path path = dir.resolve("savegame.bin");
+        World loaded = null;
+        try {
+            PlayerInput input = new PlayerInput();
+            for (int t = 0; t < TICKS; t++) step(world, input, t);
+            SaveGame.write(SaveGame.capture(world, RUN_SEED, FLOOR), path);
+            loaded = SaveGame.load(path, true).world;
+            // The file just read is replaced while the loaded level is still in use.
+            SaveGame.write(SaveGame.capture(loaded, RUN_SEED, FLOOR), path);
+            World reloaded = SaveGame.load(path, true).world;
+            assertEquals(world.checksum(), reloaded.checksum());
+            reloaded.dispose();
+        } finally {
+            world.dispose();
+            if (loaded != null) loaded.dispose();
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    private static void assertRoundTrip(boolean chunked) throws IOException {
+        World world = World.createFloor(new Warrior(), RUN_SEED, FLOOR, chunked, true);
+        World loaded = null;
+        try {
+            PlayerInput input = new PlayerInput();
+            int t = 0;
+            // Projectiles in flight are not saved, so save once none are.
+            while (t < TICKS || world.getProjectiles().size() > 0) step(world, input, t++);
+
+            SaveGame.Loaded save = SaveGame.decode(SaveGame.encode(SaveGame.capture(world, RUN_SEED, FLOOR)), true);
+            loaded = save.world;
+            assertEquals(RUN_SEED, save.runSeed);
+            assertEquals(FLOOR, save.floor);
+            assertArrayEquals(world.getFog().getBits(), loaded.getFog().getBits(), "explored tiles");
+            assertEquals(world.checksum(), loaded.checksum(), "checksum after load");
+
+            for (int end = t + TICKS; t < end; t++) {
+                step(world, input, t);
+                step(loaded, input, t);
+            }
+            assertEquals(world.checksum(), loaded.checksum(), "checksum " + TICKS + " ticks after load");
+        } finally {
+            world.dispose();
+            if (loaded != null) loaded.dispose();
+        }
+    }
+
+    /** Walks in a slowly turning pattern without attacking or dying. */
+    private static void step(World world, PlayerInput input, int t) {
+        input.setBits((t / 29) % 16);
+        world.getPlayer().health = world.getPlayer().getPlayerClass().getMaxHealth();
+        world.step(input);
+    }
+}
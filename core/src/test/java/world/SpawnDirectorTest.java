@@ -0,0 +1,84 @@
+package world;
+
+import entities.MainCharacterTypes.Warrior;
+import maps.ChunkedDungeon;
+import maps.DungeonGenerator;
+import maps.TileSource;
+import maps.WalkableIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SpawnDirectorTest {
+    private static final long RUN_SEED = 0x5BA7L;
+    private static final int SIZE = ChunkedDungeon.CHUNK_SIZE;
+
+    @Test
+    void scheduleRejectsRoomsOutsideTheSpawnArea() {
+        World world = new World(new Warrior(), new DungeonGenerator(RUN_SEED), 0);
+        try {
+            SpawnDirector director = world.getSpawnDirector();
+            int rooms = world.getSpawnArea().getRoomCount();
+            assertThrows(IllegalArgumentException.class, () -> director.schedule(1, rooms, 0));
+            assertThrows(IllegalArgumentException.class, () -> director.schedule(1, -2, 0));
+            director.schedule(1, rooms - 1, 0);
+            director.schedule(1, -1, 0);
+            assertEquals(2, director.getPending());
+        } finally {
+            world.dispose();
+        }
+    }
+
+    @Test
+    void chunkedWavesSpawnInThePlayersCurrentChunk() {
+        World world = World.createFloor(new Warrior(), RUN_SEED, 1, true, true);
+        try {
+            int startX = tileX(world) / SIZE;
+            int startY = tileY(world) / SIZE;
+            moveToChunk(world, startX + 1, startY);
+            world.step(new PlayerInput());
+
+            WalkableIndex area = world.getSpawnArea();
+            int tile = area.randomTile(new Random(1));
+            assertEquals(startX + 1, area.tileX(tile) / SIZE);
+            assertEquals(startY, area.tileY(tile) / SIZE);
+
+            int before = world.getEnemies().size();
+            world.getSpawnDirector().schedule(10, -1, 0);
+            world.step(new PlayerInput());
+            assertEquals(before + 10, world.getEnemies().size());
+            for (int i = before; i < world.getEnemies().size(); i++) {
+                assertEquals(startX + 1, (int) (world.getEnemies().x[i] / DungeonGenerator.TILE_SIZE) / SIZE);
+                assertEquals(startY, (int) (world.getEnemies().y[i] / DungeonGenerator.TILE_SIZE) / SIZE);
+            }
+        } finally {
+            world.dispose();
+        }
+    }
+
+    private static int tileX(World world) {
+        return (int) (world.getPlayer().x / DungeonGenerator.TILE_SIZE);
+    }
+
+    private static int tileY(World world) {
+        return (int) (world.getPlayer().y / DungeonGenerator.TILE_SIZE);
+    }
+
+    /** Puts the player on the first walkable tile of the chunk, which is resident next to the start. */
+    private static void moveToChunk(World world, int chunkX, int chunkY) {
+        TileSource map = world.getMap();
+        for (int y = chunkY * SIZE + 1; y < (chunkY + 1) * SIZE - 1; y++) {
+            for (int x = chunkX * SIZE + 1; x < (chunkX + 1) * SIZE - 1; x++) {
+                if (!map.isWalkable(x, y)) continue;
+                world.getPlayer().x = x * DungeonGenerator.TILE_SIZE;
+                world.getPlayer().y = y * DungeonGenerator.TILE_SIZE;
+                return;
+            }
+        }
+        fail("no walkable tile in chunk " + chunkX + "," + chunkY);
+    }
+}
@@ -0,0 +1,37 @@
+package world;
+
+import entities.MainCharacterTypes.Warrior;
+import maps.DungeonGenerator;
+import maps.Portal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorldTest {
+    private static final long SEED = 0xD1CEL;
+
+    @Test
+    void stepDoesNothingOnceTheLevelIsCompleted() {
+        World world = new World(new Warrior(), new DungeonGenerator(SEED), 0);
+        try {
+            Portal portal = world.getPortal();
+            world.getPlayer().x = portal.getX();
+            world.getPlayer().y = portal.getY();
+            PlayerInput input = new PlayerInput();
+            for (int t = 0; t < 60 && world.getOutcome() == World.Outcome.RUNNING; t++) world.step(input);
+            assertEquals(World.Outcome.LEVEL_COMPLETED, world.getOutcome());
+
+            // Dying after the portal was reached must not turn the level into a death.
+            world.getPlayer().health = 0;
+            long checksum = world.checksum();
+            long tick = world.getTick();
+            input.right = true;
+            for (int t = 0; t < 10 * 60; t++) world.step(input);
+            assertEquals(World.Outcome.LEVEL_COMPLETED, world.getOutcome());
+            assertEquals(tick, world.getTick());
+            assertEquals(checksum, world.checksum());
+        } finally {
+            world.dispose();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.Klimenntiy.GameForSummer.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import entities.MainCharacterTypes.PlayerClass;
+import net.CoopServer;
+import world.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the soak test: bots play generated floors without a window and the
+ * run's stats are printed at the end. With --server it hosts a co-op game
+ * instead.
+ */
+public class HeadlessLauncher {
+    private static final int DEFAULT_LEVELS = 1000;
+    private static final int DEFAULT_PORT = 7777;
+    /** Ten minutes of game time. */
+    private static final int DEFAULT_MAX_TICKS = 60 * 60 * 10;
+
+    public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        if (options.contains("--server")) {
+            serve(options);
+            return;
+        }
+        SoakTest soak;
+        try {
+            int levels = Integer.parseInt(optionValue(options, "--levels", Integer.toString(DEFAULT_LEVELS)));
+            long seed = Long.parseLong(optionValue(options, "--seed", "1"));
+            int maxTicks = Integer.parseInt(optionValue(options, "--max-ticks", Integer.toString(DEFAULT_MAX_TICKS)));
+            String className = optionValue(options, "--class", null);
+            if (className != null) PlayerClass.forName(className);
+            String csv = optionValue(options, "--csv", null);
+            if (levels <= 0 || maxTicks <= 0) throw new IllegalArgumentException("--levels and --max-ticks must be positive");
+            soak = new SoakTest(levels, seed, options.contains("--chunked"), className, maxTicks,
+                csv == null ? null : new File(csv));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: [--levels N] [--seed S] [--chunked] [--class Warrior|Mage|Archer] [--max-ticks T] [--csv levels.csv]");
+            System.exit(1);
+            return;
+        }
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        // Render as often as possible instead of pacing frames to a rate.
+        config.updatesPerSecond = 0;
+        new HeadlessApplication(soak, config);
+    }
+
+    /** Runs the co-op server on this thread until the process is stopped. Needs no application or GL. */
+    private static void serve(List<String> options) {
+        int port, enemies;
+        long seed;
+        try {
+            port = Integer.parseInt(optionValue(options, "--port", Integer.toString(DEFAULT_PORT)));
+            seed = Long.parseLong(optionValue(options, "--seed", "1"));
+            enemies = Integer.parseInt(optionValue(options, "--enemies", Integer.toString(World.DEFAULT_ENEMY_COUNT)));
+            if (enemies < 0) throw new IllegalArgumentException("--enemies must not be negative");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: --server [--port P] [--seed S] [--enemies N]");
+            System.exit(1);
+            return;
+        }
+
+        try (CoopServer server = new CoopServer(port, seed, enemies)) {
+            System.out.println("Co-op server on UDP port " + server.getPort() + ", run seed " + seed);
+            server.run();
+        } catch (IOException e) {
+            System.err.println("Co-op server failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String optionValue(List<String> options, String name, String fallback) {
+        int i = options.indexOf(name);
+        return i >= 0 && i + 1 < options.size() ? options.get(i + 1) : fallback;
+    }
+}
@@ -0,0 +1,236 @@
+package com.Klimenntiy.GameForSummer.headless;
+
+import world.World;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Everything a soak run measures. Frame times go into a log-linear
+ * histogram, sixteen buckets per power of two nanoseconds (about 6%
+ * resolution), so recording one costs an increment however many frames the
+ * run has. Levels are recorded in arrays sized up front. Every
+ * HEAP_SAMPLE_LEVELS levels the heap is collected and what is still live
+ * is sampled; a slope that stays above zero over thousands of levels is a
+ * leak.
+ */
+class SoakStats {
+    static final int HEAP_SAMPLE_LEVELS = 100;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+
+    enum Result { COMPLETED, DIED, TIMED_OUT }
+
+    private final long[] frameBuckets = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+    private long frames;
+    private long slowestFrameNanos;
+
+    private final long[] levelTicks;
+    private final long[] levelNanos;
+    private final long[] generationNanos;
+    private final Result[] results;
+    private final String[] levelClasses;
+    private int levels;
+
+    private final long[] heapLevel;
+    private final long[] heapUsed;
+    private int heapSamples;
+
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+    private final long threadId = Thread.currentThread().getId();
+    private final long allocatedStart;
+    private final long gcCountStart;
+    private final long gcMillisStart;
+    private final long startNanos = System.nanoTime();
+    private long endNanos;
+
+    SoakStats(int plannedLevels) {
+        levelTicks = new long[plannedLevels];
+        levelNanos = new long[plannedLevels];
+        generationNanos = new long[plannedLevels];
+        results = new Result[plannedLevels];
+        levelClasses = new String[plannedLevels];
+        heapLevel = new long[plannedLevels / HEAP_SAMPLE_LEVELS + 2];
+        heapUsed = new long[heapLevel.length];
+        allocatedStart = allocatedBytes();
+        gcCountStart = gcCount();
+        gcMillisStart = gcMillis();
+        sampleHeap();
+    }
+
+    void recordFrame(long nanos) {
+        frames++;
+        if (nanos > slowestFrameNanos) slowestFrameNanos = nanos;
+        frameBuckets[bucket(Math.max(0, nanos))]++;
+    }
+
+    void recordLevel(String className, Result result, long ticks, long nanos, long generation) {
+        levelClasses[levels] = className;
+        results[levels] = result;
+        levelTicks[levels] = ticks;
+        levelNanos[levels] = nanos;
+        generationNanos[levels] = generation;
+        levels++;
+        if (levels % HEAP_SAMPLE_LEVELS == 0) sampleHeap();
+    }
+
+    int getLevels() {
+        return levels;
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+        if (levels % HEAP_SAMPLE_LEVELS != 0) sampleHeap();
+    }
+
+    /** Heap still live after a full collection, in bytes. */
+    private void sampleHeap() {
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        heapLevel[heapSamples] = levels;
+        heapUsed[heapSamples] = memory.getHeapMemoryUsage().getUsed();
+        heapSamples++;
+    }
+
+    void print(PrintStream out) {
+        double seconds = (endNanos - startNanos) / 1e9;
+        long ticks = 0;
+        int completed = 0, died = 0, timedOut = 0;
+        for (int i = 0; i < levels; i++) {
+            ticks += levelTicks[i];
+            if (results[i] == Result.COMPLETED) completed++;
+            else if (results[i] == Result.DIED) died++;
+            else timedOut++;
+        }
+
+        out.printf("%d levels in %.1f s: %d completed, %d died, %d timed out%n", levels, seconds, completed, died, timedOut);
+        out.printf("Throughput: %.0f frames/s (%.0fx real time), %.2f levels/s%n",
+            frames / seconds, frames / seconds * World.TICK, levels / seconds);
+        out.printf("Frame time: p50 %.1f us, p95 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.2f ms%n",
+            framePercentile(50) / 1e3, framePercentile(95) / 1e3, framePercentile(99) / 1e3,
+            framePercentile(99.9) / 1e3, slowestFrameNanos / 1e6);
+        out.printf("Level time: p50 %.1f ms, p95 %.1f ms, max %.1f ms; %.0f ticks on average%n",
+            percentile(levelNanos, 50) / 1e6, percentile(levelNanos, 95) / 1e6, percentile(levelNanos, 100) / 1e6,
+            levels == 0 ? 0.0 : (double) ticks / levels);
+        out.printf("Generation: p50 %.2f ms, p95 %.2f ms, max %.2f ms%n",
+            percentile(generationNanos, 50) / 1e6, percentile(generationNanos, 95) / 1e6,
+            percentile(generationNanos, 100) / 1e6);
+
+        long allocated = allocatedBytes();
+        if (allocatedStart >= 0 && allocated >= 0 && frames > 0) {
+            out.printf("Allocation on the game thread: %.1f MB in total, %.0f bytes/frame%n",
+                (allocated - allocatedStart) / 1e6, (double) (allocated - allocatedStart) / frames);
+        }
+        out.printf("GC: %d collections, %d ms (including one forced collection per heap sample)%n",
+            gcCount() - gcCountStart, gcMillis() - gcMillisStart);
+        out.printf("Live heap after GC: %.1f MB at start, %.1f MB at the end, %.1f MB at most; trend %+.2f MB per 1000 levels%n",
+            heapUsed[0] / 1e6, heapUsed[heapSamples - 1] / 1e6, max(heapUsed, heapSamples) / 1e6,
+            heapSlope() * 1000 / 1e6);
+    }
+
+    /** One row per level. */
+    void writeCsv(Writer out) throws IOException {
+        out.write("level,class,result,ticks,level_ms,generation_ms\n");
+        for (int i = 0; i < levels; i++) {
+            out.write(String.format("%d,%s,%s,%d,%.3f,%.3f%n", i + 1, levelClasses[i], results[i].name().toLowerCase(),
+                levelTicks[i], levelNanos[i] / 1e6, generationNanos[i] / 1e6));
+        }
+    }
+
+    /** Lower bound in nanoseconds of the bucket holding the given percentile. */
+    private long framePercentile(double percent) {
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * frames));
+        long seen = 0;
+        for (int b = 0; b < frameBuckets.length; b++) {
+            seen += frameBuckets[b];
+            if (seen >= rank) return bucketStart(b);
+        }
+        return slowestFrameNanos;
+    }
+
+    /** Values below SUB_BUCKETS get a bucket each; above, the top SUB_BITS bits below the leading one pick the bucket. */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long bucketStart(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    private long percentile(long[] values, double percent) {
+        if (levels == 0) return 0;
+        long[] sorted = Arrays.copyOf(values, levels);
+        Arrays.sort(sorted);
+        return sorted[Math.min(levels - 1, (int) (percent / 100.0 * levels))];
+    }
+
+    /** Least-squares slope of live heap against levels played, in bytes per level. */
+    private double heapSlope() {
+        if (heapSamples < 3) return 0;
+        // The first sample is taken before anything is loaded, so it is left out of the fit.
+        int n = heapSamples - 1;
+        double meanX = 0, meanY = 0;
+        for (int i = 1; i < heapSamples; i++) {
+            meanX += heapLevel[i];
+            meanY += heapUsed[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double covariance = 0, variance = 0;
+        for (int i = 1; i < heapSamples; i++) {
+            covariance += (heapLevel[i] - meanX) * (heapUsed[i] - meanY);
+            variance += (heapLevel[i] - meanX) * (heapLevel[i] - meanX);
+        }
+        return variance == 0 ? 0 : covariance / variance;
+    }
+
+    private static long max(long[] values, int count) {
+        long max = 0;
+        for (int i = 0; i < count; i++) max = Math.max(max, values[i]);
+        return max;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : collectors()) count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : collectors()) millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+
+    private static List<GarbageCollectorMXBean> collectors() {
+        return ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(threadId);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) return null;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch (LinkageError | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
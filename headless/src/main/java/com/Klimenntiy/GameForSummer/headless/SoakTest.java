@@ -0,0 +1,119 @@
+package com.Klimenntiy.GameForSummer.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import entities.MainCharacterTypes.PlayerClass;
+import world.BotPlayer;
+import world.PlayerInput;
+import world.World;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plays generated floors back to back with a {@link BotPlayer} and no
+ * rendering: each frame is one bot decision and one world tick. A floor
+ * ends when the bot takes the portal, dies or runs out of ticks; the next
+ * floor of the run is then generated on this thread, so generation time is
+ * measured too. Every floor starts with a fresh player, so a death does not
+ * end the soak early.
+ */
+class SoakTest extends ApplicationAdapter {
+    private static final String[] CLASSES = {"Warrior", "Mage", "Archer"};
+
+    private final int levels;
+    private final long runSeed;
+    private final boolean chunked;
+    /** Class to play, or null to cycle through every class floor by floor. */
+    private final String className;
+    private final int maxTicks;
+    private final File csv;
+
+    private final PlayerInput input = new PlayerInput();
+    private BotPlayer bot;
+    private SoakStats stats;
+    private World world;
+    private String worldClass;
+    private long levelStart;
+    private long generationNanos;
+    private long levelTicks;
+
+    SoakTest(int levels, long runSeed, boolean chunked, String className, int maxTicks, File csv) {
+        this.levels = levels;
+        this.runSeed = runSeed;
+        this.chunked = chunked;
+        this.className = className;
+        this.maxTicks = maxTicks;
+        this.csv = csv;
+    }
+
+    @Override
+    public void create() {
+        bot = new BotPlayer(runSeed);
+        stats = new SoakStats(levels);
+        startLevel();
+    }
+
+    @Override
+    public void render() {
+        if (world == null) return;
+        long start = System.nanoTime();
+        bot.think(world, input);
+        world.step(input);
+        stats.recordFrame(System.nanoTime() - start);
+        levelTicks++;
+
+        World.Outcome outcome = world.getOutcome();
+        if (outcome == World.Outcome.RUNNING && levelTicks < maxTicks) return;
+        SoakStats.Result result = outcome == World.Outcome.LEVEL_COMPLETED ? SoakStats.Result.COMPLETED
+            : outcome == World.Outcome.PLAYER_DIED ? SoakStats.Result.DIED : SoakStats.Result.TIMED_OUT;
+        endLevel(result);
+    }
+
+    private void startLevel() {
+        int floor = stats.getLevels() + 1;
+        worldClass = className != null ? className : CLASSES[(floor - 1) % CLASSES.length];
+        long start = System.nanoTime();
+        world = World.createFloor(PlayerClass.forName(worldClass), runSeed, floor, chunked, false);
+        world.setEnemyUpdatePool(ForkJoinPool.commonPool());
+        levelStart = System.nanoTime();
+        generationNanos = levelStart - start;
+        levelTicks = 0;
+    }
+
+    private void endLevel(SoakStats.Result result) {
+        long nanos = System.nanoTime() - levelStart;
+        world.dispose();
+        world = null;
+        stats.recordLevel(worldClass, result, levelTicks, nanos, generationNanos);
+        if (stats.getLevels() % 1000 == 0) {
+            Gdx.app.log("Soak", stats.getLevels() + " levels done");
+        }
+        if (stats.getLevels() < levels) {
+            startLevel();
+            return;
+        }
+        stats.finish();
+        stats.print(System.out);
+        if (csv != null) writeCsv();
+        Gdx.app.exit();
+    }
+
+    private void writeCsv() {
+        try (Writer out = new BufferedWriter(new FileWriter(csv))) {
+            stats.writeCsv(out);
+            System.out.println("Per-level timings written to " + csv.getPath());
+        } catch (IOException e) {
+            Gdx.app.error("Soak", "Could not write " + csv, e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (world != null) world.dispose();
+    }
+}
@@ -3,23 +3,85 @@ package com.Klimenntiy.GameForSummer.lwjgl3;
 import com.Klimenntiy.GameForSummer.MainGame;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import world.InputPlayback;
+import world.Replay;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        String replay = optionValue(options, "--replay");
+        if (replay != null && options.contains("--headless")) {
+            System.exit(runHeadlessReplay(replay));
+            return;
+        }
+
         if (StartupHelper.startNewJvmIfRequired()) return;
-        createApplication();
+        MainGame game = new MainGame(options.contains("--chunked"), options.contains("--profile"));
+        game.setSimulationThreaded(options.contains("--sim-thread"));
+        String record = optionValue(options, "--record");
+        if (record != null) game.setRecordFile(new File(record));
+        if (replay != null) {
+            try {
+                game.setReplay(readPlayback(replay));
+            } catch (IOException e) {
+                System.err.println("Could not read replay " + replay + ": " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        createApplication(game);
+    }
+
+    private static void createApplication(MainGame game) {
+        new Lwjgl3Application(game, getDefaultConfiguration(game.isSimulationThreaded()));
+    }
+
+    private static String optionValue(List<String> options, String name) {
+        int i = options.indexOf(name);
+        return i >= 0 && i + 1 < options.size() ? options.get(i + 1) : null;
+    }
+
+    private static InputPlayback readPlayback(String path) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            return new InputPlayback(in);
+        }
     }
 
-    private static void createApplication() {
-        new Lwjgl3Application(new MainGame(), getDefaultConfiguration());
+    /** Replays without a window as fast as possible; exits non-zero if the final state differs. */
+    private static int runHeadlessReplay(String path) {
+        try {
+            Replay.Result result = Replay.run(readPlayback(path), ForkJoinPool.commonPool());
+            System.out.printf("%d ticks over %d floor(s) in %.1f ms, %.0f ticks/s%n",
+                result.ticks, result.floors, result.stepNanos / 1e6, result.ticksPerSecond());
+            if (result.matches()) {
+                System.out.println("Final state matches the recording");
+                return 0;
+            }
+            System.out.printf("Final state differs: %d ticks, checksum %016x; recorded %d ticks, checksum %016x%n",
+                result.ticks, result.checksum, result.expectedTicks, result.expectedChecksum);
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Could not replay " + path + ": " + e.getMessage());
+            return 1;
+        }
     }
 
-    private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
+    private static Lwjgl3ApplicationConfiguration getDefaultConfiguration(boolean simulationThreaded) {
         Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
         config.setTitle("GameForSummer");
         config.setWindowedMode(800, 600);
         config.useVsync(true);
-        config.setForegroundFPS(60);
+        // Interpolated frames are not tied to the tick rate, so only vsync paces them.
+        config.setForegroundFPS(simulationThreaded ? 0 : 60);
         return config;
     }
 }